@@ -0,0 +1,63 @@
+package com.example.rentacar.availability;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.function.Supplier;
+
+/**
+ * Serializes reservation writes per car.
+ * Inside one JVM a striped lock keyed by the car id is used. When the application runs on several nodes
+ * ({@code rentacar.reservation.distributedLock=true}) a transaction scoped PostgreSQL advisory lock on the
+ * car id is taken as well, so that bookings of the same car are serialized across all nodes.
+ */
+@Component
+public class CarReservationLock {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${rentacar.reservation.lockStripes:256}")
+    private int lockStripes;
+
+    @Value("${rentacar.reservation.distributedLock:false}")
+    private boolean distributed;
+
+    private StripedLock stripedLock;
+
+    @PostConstruct
+    public void init() {
+        stripedLock = new StripedLock(lockStripes);
+    }
+
+    /**
+     * Runs the given action while holding the in-JVM lock of the car.
+     *
+     * @param carId  The identifier of the car.
+     * @param action The action to be executed.
+     * @param <T>    The type of the action result.
+     * @return The result of the action.
+     */
+    public <T> T callLocked(Long carId, Supplier<T> action) {
+        return stripedLock.callLocked(carId, action);
+    }
+
+    /**
+     * Takes the PostgreSQL advisory lock of the car if the distributed lock is enabled.
+     * Must be called inside a transaction; the lock is released when the transaction ends.
+     *
+     * @param carId The identifier of the car.
+     */
+    public void lockInDatabase(Long carId) {
+        if (distributed) {
+            jdbcTemplate.query("select pg_advisory_xact_lock(?)", rs -> null, carId);
+        }
+    }
+
+    public boolean isDistributed() {
+        return distributed;
+    }
+}
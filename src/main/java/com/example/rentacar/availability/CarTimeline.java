@@ -0,0 +1,193 @@
+package com.example.rentacar.availability;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, sorted snapshot of the active reservations of a single car.
+ * Periods are kept as primitive epoch-second arrays ordered by pick-up time together with
+ * a running maximum of the drop-off times, so an overlap probe is a binary search instead of a scan.
+ * Every mutation returns a new timeline, which lets readers work without any locking.
+ */
+public final class CarTimeline {
+
+    public static final long NO_EXCLUSION = -1L;
+
+    static final CarTimeline EMPTY = new CarTimeline(new long[0], new long[0], new long[0]);
+
+    private final long[] starts;
+
+    private final long[] ends;
+
+    private final long[] ids;
+
+    //maxEnds[i] = latest drop-off time among periods 0..i
+    private final long[] maxEnds;
+
+    private CarTimeline(long[] starts, long[] ends, long[] ids) {
+        this.starts = starts;
+        this.ends = ends;
+        this.ids = ids;
+        this.maxEnds = new long[ends.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < ends.length; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    /**
+     * Builds a timeline from a list of periods in a single pass, without the copy per insertion of {@link #with}.
+     *
+     * @param periods The reservation periods of one car, in any order.
+     * @return A new timeline containing the periods.
+     */
+    public static CarTimeline of(List<ReservationPeriod> periods) {
+        ReservationPeriod[] sorted = periods.toArray(new ReservationPeriod[0]);
+        Arrays.sort(sorted, Comparator.comparing(ReservationPeriod::getPickUpTime));
+
+        long[] starts = new long[sorted.length];
+        long[] ends = new long[sorted.length];
+        long[] ids = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            starts[i] = ReservationAvailabilityIndex.toEpochSecond(sorted[i].getPickUpTime());
+            ends[i] = ReservationAvailabilityIndex.toEpochSecond(sorted[i].getDropOffTime());
+            ids[i] = sorted[i].getReservationId();
+        }
+        return new CarTimeline(starts, ends, ids);
+    }
+
+    /**
+     * Returns a timeline that contains the given reservation period.
+     * An existing period with the same reservation id is replaced.
+     *
+     * @param id    The reservation identifier.
+     * @param start The pick-up time in epoch seconds.
+     * @param end   The drop-off time in epoch seconds.
+     * @return A new timeline containing the period.
+     */
+    public CarTimeline with(long id, long start, long end) {
+        CarTimeline base = without(id);
+        int n = base.starts.length;
+        int pos = base.upperBound(start);
+
+        long[] newStarts = new long[n + 1];
+        long[] newEnds = new long[n + 1];
+        long[] newIds = new long[n + 1];
+
+        System.arraycopy(base.starts, 0, newStarts, 0, pos);
+        System.arraycopy(base.ends, 0, newEnds, 0, pos);
+        System.arraycopy(base.ids, 0, newIds, 0, pos);
+
+        newStarts[pos] = start;
+        newEnds[pos] = end;
+        newIds[pos] = id;
+
+        System.arraycopy(base.starts, pos, newStarts, pos + 1, n - pos);
+        System.arraycopy(base.ends, pos, newEnds, pos + 1, n - pos);
+        System.arraycopy(base.ids, pos, newIds, pos + 1, n - pos);
+
+        return new CarTimeline(newStarts, newEnds, newIds);
+    }
+
+    /**
+     * Returns a timeline without the period of the given reservation.
+     *
+     * @param id The reservation identifier.
+     * @return A new timeline, or this instance if the reservation is not part of it.
+     */
+    public CarTimeline without(long id) {
+        int pos = indexOf(id);
+        if (pos < 0) {
+            return this;
+        }
+        int n = starts.length;
+        long[] newStarts = new long[n - 1];
+        long[] newEnds = new long[n - 1];
+        long[] newIds = new long[n - 1];
+
+        System.arraycopy(starts, 0, newStarts, 0, pos);
+        System.arraycopy(ends, 0, newEnds, 0, pos);
+        System.arraycopy(ids, 0, newIds, 0, pos);
+
+        System.arraycopy(starts, pos + 1, newStarts, pos, n - pos - 1);
+        System.arraycopy(ends, pos + 1, newEnds, pos, n - pos - 1);
+        System.arraycopy(ids, pos + 1, newIds, pos, n - pos - 1);
+
+        return new CarTimeline(newStarts, newEnds, newIds);
+    }
+
+    /**
+     * Checks whether any stored period overlaps the closed interval [start, end].
+     * Touching periods count as overlapping, which matches the between-based database check.
+     *
+     * @param start     The pick-up time in epoch seconds.
+     * @param end       The drop-off time in epoch seconds.
+     * @param excludeId A reservation id to ignore, or {@link #NO_EXCLUSION}.
+     * @return true if an overlapping period exists, false otherwise.
+     */
+    public boolean overlaps(long start, long end, long excludeId) {
+        int i = upperBound(end) - 1;
+        while (i >= 0 && maxEnds[i] >= start) {
+            if (ends[i] >= start && ids[i] != excludeId) {
+                return true;
+            }
+            i--;
+        }
+        return false;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public long startAt(int index) {
+        return starts[index];
+    }
+
+    public long endAt(int index) {
+        return ends[index];
+    }
+
+    public long idAt(int index) {
+        return ids[index];
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    /**
+     * First index whose start is strictly greater than the given value.
+     */
+    private int upperBound(long value) {
+        int low = 0;
+        int high = starts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int indexOf(long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "CarTimeline{" +
+                "ids=" + Arrays.toString(ids) +
+                '}';
+    }
+}
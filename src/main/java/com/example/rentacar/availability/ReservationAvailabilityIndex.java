@@ -0,0 +1,186 @@
+package com.example.rentacar.availability;
+
+import com.example.rentacar.domain.Reservation;
+import com.example.rentacar.domain.enums.ReservationStatus;
+import com.example.rentacar.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process index of the active (not canceled, not done) reservations of every car.
+ * The index is loaded once the application is ready and kept up to date by {@code ReservationService},
+ * so availability checks become memory lookups. Until the index is loaded, or when it is disabled,
+ * callers fall back to the database query.
+ * The index only sees the writes of its own node, so it is also disabled when reservations are
+ * serialized across several nodes ({@code rentacar.reservation.distributedLock=true}).
+ */
+@Component
+public class ReservationAvailabilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationAvailabilityIndex.class);
+
+    public static final ReservationStatus[] INACTIVE_STATUSES = {ReservationStatus.CANCELED, ReservationStatus.DONE};
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Value("${rentacar.availability.indexEnabled:true}")
+    private boolean enabled;
+
+    @Value("${rentacar.reservation.distributedLock:false}")
+    private boolean distributedLock;
+
+    private final Map<Long, CarTimeline> timelines = new ConcurrentHashMap<>();
+
+    private final Map<Long, Long> reservationCars = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * Loads the index when the application has started.
+     * A failure is logged and leaves the index in the not-ready state, which keeps the database fallback active.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!isEnabled()) {
+            logger.info("Reservation availability index is disabled");
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            logger.error("Reservation availability index could not be loaded : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from the active reservations stored in the database.
+     */
+    public synchronized void reload() {
+        ready = false;
+        timelines.clear();
+        reservationCars.clear();
+
+        List<ReservationPeriod> periods = reservationRepository.findActivePeriods(INACTIVE_STATUSES);
+        for (ReservationPeriod period : periods) {
+            add(period.getReservationId(), period.getCarId(), period.getPickUpTime(), period.getDropOffTime());
+        }
+        ready = true;
+        logger.info("Reservation availability index loaded with {} active reservations", periods.size());
+    }
+
+    /**
+     * Indicates whether the index can answer availability questions.
+     *
+     * @return true if the index is enabled and loaded, false otherwise.
+     */
+    public boolean isReady() {
+        return isEnabled() && ready;
+    }
+
+    private boolean isEnabled() {
+        return enabled && !distributedLock;
+    }
+
+    /**
+     * Checks if the specified car has no active reservation overlapping the provided time range.
+     *
+     * @param carId         The identifier of the car.
+     * @param pickUpTime    The pick-up time of the requested range.
+     * @param dropOffTime   The drop-off time of the requested range.
+     * @param reservationId A reservation to ignore (e.g. the one being updated), may be null.
+     * @return true if the car is available, false otherwise.
+     */
+    public boolean isAvailable(Long carId, LocalDateTime pickUpTime, LocalDateTime dropOffTime, Long reservationId) {
+        CarTimeline timeline = getTimeline(carId);
+        long excludeId = reservationId == null ? CarTimeline.NO_EXCLUSION : reservationId;
+        return !timeline.overlaps(toEpochSecond(pickUpTime), toEpochSecond(dropOffTime), excludeId);
+    }
+
+    /**
+     * Retrieves the current timeline of a car.
+     *
+     * @param carId The identifier of the car.
+     * @return The immutable timeline of the car, empty if the car has no active reservation.
+     */
+    public CarTimeline getTimeline(Long carId) {
+        return timelines.getOrDefault(carId, CarTimeline.EMPTY);
+    }
+
+    /**
+     * Applies the current state of a saved reservation to the index.
+     * Active reservations are (re)inserted, canceled or done reservations are removed.
+     *
+     * @param reservation The persisted reservation.
+     */
+    public synchronized void update(Reservation reservation) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (isActive(reservation.getStatus())) {
+            add(reservation.getId(), reservation.getCar().getId(), reservation.getPickUpTime(), reservation.getDropOffTime());
+        } else {
+            remove(reservation.getId());
+        }
+    }
+
+    /**
+     * Removes a reservation from the index.
+     *
+     * @param reservationId The identifier of the removed reservation.
+     */
+    public synchronized void remove(Long reservationId) {
+        Long carId = reservationCars.remove(reservationId);
+        if (carId != null) {
+            timelines.computeIfPresent(carId, (id, timeline) -> {
+                CarTimeline updated = timeline.without(reservationId);
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+    }
+
+    /**
+     * Checks if a reservation with the given status blocks its car.
+     *
+     * @param status The reservation status.
+     * @return true if the status is neither CANCELED nor DONE.
+     */
+    public static boolean isActive(ReservationStatus status) {
+        return status != ReservationStatus.CANCELED && status != ReservationStatus.DONE;
+    }
+
+    /**
+     * Converts a reservation time to the epoch-second representation used by the timelines.
+     *
+     * @param dateTime The local date time.
+     * @return The epoch seconds of the date time, interpreted without a time zone shift.
+     */
+    public static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private void add(Long reservationId, Long carId, LocalDateTime pickUpTime, LocalDateTime dropOffTime) {
+        Long previousCarId = reservationCars.put(reservationId, carId);
+        if (previousCarId != null && !previousCarId.equals(carId)) {
+            timelines.computeIfPresent(previousCarId, (id, timeline) -> {
+                CarTimeline updated = timeline.without(reservationId);
+                return updated.isEmpty() ? null : updated;
+            });
+        }
+        long start = toEpochSecond(pickUpTime);
+        long end = toEpochSecond(dropOffTime);
+        timelines.compute(carId, (id, timeline) ->
+                (timeline == null ? CarTimeline.EMPTY : timeline).with(reservationId, start, end));
+    }
+}
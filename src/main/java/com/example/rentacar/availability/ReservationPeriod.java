@@ -0,0 +1,19 @@
+package com.example.rentacar.availability;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class ReservationPeriod {
+
+    private Long reservationId;
+
+    private Long carId;
+
+    private LocalDateTime pickUpTime;
+
+    private LocalDateTime dropOffTime;
+}
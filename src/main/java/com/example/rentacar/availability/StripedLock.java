@@ -0,0 +1,77 @@
+package com.example.rentacar.availability;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed set of locks shared by hashing a numeric key (e.g. a car id) onto one of the stripes.
+ * Work on keys that map to different stripes runs in parallel, work on the same key is serialized,
+ * and the memory used does not grow with the number of keys.
+ */
+public final class StripedLock {
+
+    private final ReentrantLock[] locks;
+
+    private final int mask;
+
+    /**
+     * Creates the lock stripes.
+     *
+     * @param stripes The minimum number of stripes, rounded up to the next power of two.
+     */
+    public StripedLock(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripe count must be positive : " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs the given action while holding the stripe of the key.
+     *
+     * @param key    The key whose stripe is locked.
+     * @param action The action to be executed.
+     * @param <T>    The type of the action result.
+     * @return The result of the action.
+     */
+    public <T> T callLocked(long key, Supplier<T> action) {
+        ReentrantLock lock = locks[stripeOf(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the given action while holding the stripe of the key.
+     *
+     * @param key    The key whose stripe is locked.
+     * @param action The action to be executed.
+     */
+    public void runLocked(long key, Runnable action) {
+        callLocked(key, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public int getStripeCount() {
+        return locks.length;
+    }
+
+    int stripeOf(long key) {
+        //spread the bits so that sequential ids don't cluster on neighbouring stripes
+        int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.rentacar.controller;
+
+import com.example.rentacar.dto.RevenueAnalyticsDTO;
+import com.example.rentacar.dto.UtilizationAnalyticsDTO;
+import com.example.rentacar.report.AnalyticsGroup;
+import com.example.rentacar.service.AnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/reports/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    /**
+     * Retrieves the revenue of the reservations in a date range, grouped per car, per model or per month.
+     * Reservations crossing the range (or a month) boundary count with the prorated part of their total price.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param groupBy            Optional. The grouping: car (default), model or month.
+     * @param from               The first day of the range (inclusive).
+     * @param to                 The last day of the range (inclusive).
+     * @return                   ResponseEntity containing a list of RevenueAnalyticsDTOs, one per group.
+     *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException   Thrown if the grouping or the date range is not valid.
+     * @throws UnauthorizedException Thrown if the user is not authorized to access the analytics.
+     */
+    @GetMapping("/revenue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<RevenueAnalyticsDTO>> getRevenue(@RequestParam(value = "groupBy", required = false, defaultValue = "car") String groupBy,
+                                                                @RequestParam("from") @DateTimeFormat(pattern = "MM/dd/yyyy") LocalDate from,
+                                                                @RequestParam("to") @DateTimeFormat(pattern = "MM/dd/yyyy") LocalDate to) {
+        List<RevenueAnalyticsDTO> revenue = analyticsService.getRevenue(AnalyticsGroup.of(groupBy), from, to);
+
+        return ResponseEntity.ok(revenue);
+    }
+
+    /**
+     * Retrieves the share of the available car hours covered by reservations in a date range,
+     * grouped per car, per model or per month.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param groupBy            Optional. The grouping: car, model or month (default).
+     * @param from               The first day of the range (inclusive).
+     * @param to                 The last day of the range (inclusive).
+     * @return                   ResponseEntity containing a list of UtilizationAnalyticsDTOs, one per group.
+     *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException   Thrown if the grouping or the date range is not valid.
+     * @throws UnauthorizedException Thrown if the user is not authorized to access the analytics.
+     */
+    @GetMapping("/utilization")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<UtilizationAnalyticsDTO>> getUtilization(@RequestParam(value = "groupBy", required = false, defaultValue = "month") String groupBy,
+                                                                        @RequestParam("from") @DateTimeFormat(pattern = "MM/dd/yyyy") LocalDate from,
+                                                                        @RequestParam("to") @DateTimeFormat(pattern = "MM/dd/yyyy") LocalDate to) {
+        List<UtilizationAnalyticsDTO> utilization = analyticsService.getUtilization(AnalyticsGroup.of(groupBy), from, to);
+
+        return ResponseEntity.ok(utilization);
+    }
+}
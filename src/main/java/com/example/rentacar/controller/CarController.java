@@ -1,8 +1,11 @@
 package com.example.rentacar.controller;
 
+import com.example.rentacar.dto.AvailableCarDTO;
+import com.example.rentacar.dto.CarCalendarDTO;
 import com.example.rentacar.dto.CarDTO;
 import com.example.rentacar.dto.response.ResponseMessage;
 import com.example.rentacar.dto.response.VRResponse;
+import com.example.rentacar.service.CarCalendarService;
 import com.example.rentacar.service.CarService;
 import com.example.rentacar.service.ImageFileService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +13,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -28,6 +34,9 @@ public class CarController {
     @Autowired
     private ImageFileService imageFileService;
 
+    @Autowired
+    private CarCalendarService carCalendarService;
+
     /**
      * Adds a new car with the specified image identifier.
      * This endpoint is restricted to users with the ADMIN role.
@@ -91,6 +100,27 @@ public class CarController {
 
         return ResponseEntity.ok(pageDTO);
     }
+    /**
+     * Retrieves every car that is available for the specified time range, with its total price,
+     * for visitors (non-authenticated users).
+     *
+     * @param pickUpDateTime      The date and time when the car will be picked up.
+     * @param dropOffDateTime     The date and time when the car will be dropped off.
+     * @return                    ResponseEntity containing a list of AvailableCarDTOs with the available cars and their prices.
+     *                            The HTTP status in the response is HttpStatus.OK.
+     * @throws InvalidInputException Thrown if the specified time range is not valid.
+     */
+    @GetMapping("/visitors/available")
+    public ResponseEntity<List<AvailableCarDTO>> getAvailableCars(@RequestParam("pickUpDateTime")
+                                                                  @DateTimeFormat(pattern = "MM/dd/yyyy HH:mm:ss") LocalDateTime pickUpDateTime,
+                                                                  @RequestParam("dropOffDateTime")
+                                                                  @DateTimeFormat(pattern = "MM/dd/yyyy HH:mm:ss") LocalDateTime dropOffDateTime) {
+
+        List<AvailableCarDTO> availableCars = carService.findAvailableCars(pickUpDateTime, dropOffDateTime);
+
+        return ResponseEntity.ok(availableCars);
+    }
+
     /**
      * Retrieves the details of a specific car for visitors (non-authenticated users) by its identifier.
      *
@@ -106,6 +136,27 @@ public class CarController {
         return ResponseEntity.ok(carDTO);
     }
 
+    /**
+     * Retrieves the hourly occupancy calendar of a car for visitors (non-authenticated users).
+     * The occupancy is returned as a base64 encoded bitmap with one bit per hour, starting at 00:00 of the first day.
+     *
+     * @param id                The identifier of the car.
+     * @param from              The first day of the calendar (inclusive).
+     * @param to                The last day of the calendar (inclusive).
+     * @return                  ResponseEntity containing a CarCalendarDTO with the occupancy of the car.
+     *                          The HTTP status in the response is HttpStatus.OK.
+     * @throws NotFoundException     Thrown if the specified car is not found.
+     * @throws InvalidInputException Thrown if the date range is not valid.
+     */
+    @GetMapping("/visitors/{id}/calendar")
+    public ResponseEntity<CarCalendarDTO> getCarCalendar(@PathVariable Long id,
+                                                         @RequestParam("from") @DateTimeFormat(pattern = "MM/dd/yyyy") LocalDate from,
+                                                         @RequestParam("to") @DateTimeFormat(pattern = "MM/dd/yyyy") LocalDate to) {
+        CarCalendarDTO calendarDTO = carCalendarService.getCalendar(id, from, to);
+
+        return ResponseEntity.ok(calendarDTO);
+    }
+
     /**
      * Updates the details of an existing car.
      * This endpoint is restricted to users with the ADMIN role.
@@ -1,21 +1,38 @@
 package com.example.rentacar.controller;
 
-import com.example.rentacar.domain.ImageFile;
 import com.example.rentacar.dto.ImageFileDTO;
+import com.example.rentacar.dto.ImageMigrationReport;
 import com.example.rentacar.dto.response.ImageSavedResponse;
+import com.example.rentacar.dto.response.ImagesSavedResponse;
 import com.example.rentacar.dto.response.ResponseMessage;
 import com.example.rentacar.dto.response.VRResponse;
+import com.example.rentacar.service.CarService;
+import com.example.rentacar.service.ImageExportService;
 import com.example.rentacar.service.ImageFileService;
+import com.example.rentacar.service.ImageMigrationService;
+import com.example.rentacar.service.ImageRenditionService;
+import com.example.rentacar.storage.ImageContent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/files")
@@ -24,6 +41,21 @@ public class ImageFileController {
     @Autowired
     private ImageFileService imageFileService;
 
+    @Autowired
+    private ImageMigrationService imageMigrationService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private ImageExportService imageExportService;
+
+    @Autowired
+    private CarService carService;
+
+    @Value("${rentacar.image.cacheMaxAgeDays:365}")
+    private long imageCacheMaxAgeDays;
+
     /**
      * Uploads an image file.
      * This endpoint is restricted to users with the ADMIN role.
@@ -45,42 +77,128 @@ public class ImageFileController {
 
     }
 
+    /**
+     * Uploads several image files in one request, optionally attaching them to a car.
+     * The files are stored concurrently; either all of them are saved (and attached) or none.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param files                  The image files to be uploaded.
+     * @param carId                  Optional. The identifier of the car the images are attached to.
+     * @return                       ResponseEntity containing an ImagesSavedResponse with the generated image identifiers
+     *                               in the order of the files, a message, and success status.
+     *                               The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException   Thrown if there are too many files, a file is not an image or the car is built-in.
+     * @throws NotFoundException     Thrown if the specified car is not found.
+     */
+    @PostMapping("/upload/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImagesSavedResponse>uploadFiles(@RequestParam("files")List<MultipartFile> files,
+                                                         @RequestParam(value = "carId",required = false) Long carId){
+
+        List<String> imageIds=carId==null ? imageFileService.saveImages(files) : carService.saveImagesToCar(carId, files);
+
+        ImagesSavedResponse response=new ImagesSavedResponse(imageIds,carId,ResponseMessage.IMAGES_SAVED_RESPONSE_MESSAGE,true);
+        return ResponseEntity.ok(response);
+
+    }
+
     /**
      * Downloads an image file by its identifier.
+     * The content is streamed from the image storage; a Range header is answered with 206 Partial Content.
+     * Images never change once uploaded, so the response carries the content hash as a strong ETag and may be
+     * cached indefinitely; a matching If-None-Match is answered with 304 without reading the image.
      *
      * @param id                 The identifier of the image file to be downloaded.
-     * @return                   ResponseEntity containing the byte array of the image file data to be downloaded.
+     * @param webRequest         The current request, used to evaluate If-None-Match.
+     * @return                   ResponseEntity containing a Resource with the image file data to be downloaded.
      *                           The response includes the necessary headers for file download.
-     *                           The HTTP status in the response is HttpStatus.OK.
+     *                           The HTTP status in the response is HttpStatus.OK, HttpStatus.PARTIAL_CONTENT for
+     *                           range requests or HttpStatus.NOT_MODIFIED if the client copy is current.
      * @throws NotFoundException Thrown if the specified image file is not found.
      */
     @GetMapping("/download/{id}")
-    public ResponseEntity<byte[]>downloadFile(@PathVariable String id ){
+    public ResponseEntity<Resource>downloadFile(@PathVariable String id, WebRequest webRequest){
+
+        String eTag=imageFileService.getImageETag(id);
 
-        ImageFile imageFile=imageFileService.getImageById(id);
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).header(HttpHeaders.CACHE_CONTROL,imageCacheControl()).build();
+        }
+        ImageContent image=imageFileService.getImageContent(id);
+        Resource resource=imageFileService.getImageResource(image);
 
-        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,"attachment;filename="+imageFile.getName()).
-              body(imageFile.getImageData().getData());
+        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,"attachment;filename="+image.getName()).
+              header(HttpHeaders.ACCEPT_RANGES,"bytes").eTag(image.getETag()).header(HttpHeaders.CACHE_CONTROL,imageCacheControl()).
+              contentType(mediaTypeOf(image.getType())).body(resource);
     }
 
     /**
      * Displays an image file by its identifier.
+     * The content is streamed from the image storage; a Range header is answered with 206 Partial Content.
+     * Images never change once uploaded, so the response carries the content hash as a strong ETag and may be
+     * cached indefinitely; a matching If-None-Match is answered with 304 without reading the image.
+     * When a width and/or height is given, a resized rendition is returned instead, at the smallest configured
+     * breakpoint containing that box.
      *
      * @param id                 The identifier of the image file to be displayed.
-     * @return                   ResponseEntity containing the byte array of the image file data to be displayed.
+     * @param width              The maximum width of the displayed image, optional.
+     * @param height             The maximum height of the displayed image, optional.
+     * @param webRequest         The current request, used to evaluate If-None-Match.
+     * @return                   ResponseEntity containing a Resource with the image file data to be displayed.
      *                           The response includes the necessary headers for displaying the image.
-     *                           The HTTP status in the response is HttpStatus.OK.
-     * @throws NotFoundException Thrown if the specified image file is not found.
+     *                           The HTTP status in the response is HttpStatus.OK, HttpStatus.PARTIAL_CONTENT for
+     *                           range requests or HttpStatus.NOT_MODIFIED if the client copy is current.
+     * @throws NotFoundException        Thrown if the specified image file is not found.
+     * @throws InvalidInputException    Thrown if the requested size is not valid.
+     * @throws TooManyRequestsException Thrown if the rendition can't be computed right now.
      */
     @GetMapping("/display/{id}")
-    public ResponseEntity<byte[]>displayFile(@PathVariable String id ){
+    public ResponseEntity<Resource>displayFile(@PathVariable String id,
+                                               @RequestParam(value = "w",required = false) Integer width,
+                                               @RequestParam(value = "h",required = false) Integer height,
+                                               WebRequest webRequest){
 
-        ImageFile imageFile=imageFileService.getImageById(id);
+        if (width != null || height != null) {
+            ImageContent info=imageFileService.getImageInfo(id);
+            //tasinmamis eski resimler yeniden boyutlandirilmaz, orijinali gonderilir
+            if (info.getHash() != null) {
+                return displayRendition(info, width, height, webRequest);
+            }
+        }
+        String eTag=imageFileService.getImageETag(id);
 
         HttpHeaders header=new HttpHeaders();
-        header.setContentType(MediaType.IMAGE_PNG);
+        header.setETag(eTag);
+        header.set(HttpHeaders.CACHE_CONTROL,imageCacheControl());
 
-        return new  ResponseEntity<>(imageFile.getImageData().getData(),header, HttpStatus.OK);
+        if (webRequest.checkNotModified(eTag)) {
+            return new ResponseEntity<>(header, HttpStatus.NOT_MODIFIED);
+        }
+        ImageContent image=imageFileService.getImageContent(id);
+        Resource resource=imageFileService.getImageResource(image);
+
+        header.setContentType(mediaTypeOf(image.getType()));
+        header.set(HttpHeaders.ACCEPT_RANGES,"bytes");
+
+        return new  ResponseEntity<>(resource,header, HttpStatus.OK);
+    }
+
+    private ResponseEntity<Resource>displayRendition(ImageContent info, Integer width, Integer height, WebRequest webRequest){
+        String eTag="\""+imageRenditionService.getRenditionTag(info, width, height)+"\"";
+
+        HttpHeaders header=new HttpHeaders();
+        header.setETag(eTag);
+        header.set(HttpHeaders.CACHE_CONTROL,imageCacheControl());
+
+        if (webRequest.checkNotModified(eTag)) {
+            return new ResponseEntity<>(header, HttpStatus.NOT_MODIFIED);
+        }
+        Path rendition=imageRenditionService.getRendition(info, width, height);
+
+        header.setContentType(MediaType.parseMediaType(ImageRenditionService.renditionType(info.getType())));
+        header.set(HttpHeaders.ACCEPT_RANGES,"bytes");
+
+        return new ResponseEntity<>(new FileSystemResource(rendition),header, HttpStatus.OK);
     }
 
     /**
@@ -100,6 +218,48 @@ public class ImageFileController {
         return ResponseEntity.ok(allImagesDTO);
     }
 
+    /**
+     * Exports the images as a single ZIP archive, one entry per image file named {@code <id>/<file name>}.
+     * The archive is streamed to the client while the images are read one by one, so it is never held in memory.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param since              Optional. Only images uploaded at or after this time are exported, for incremental exports.
+     *                           Format: MM/dd/yyyy HH:mm:ss
+     * @return                   ResponseEntity containing a StreamingResponseBody writing the archive.
+     *                           The HTTP status in the response is HttpStatus.OK.
+     */
+    @GetMapping("/export.zip")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody>exportImages(@RequestParam(value = "since",required = false)
+                                                             @DateTimeFormat(pattern = "MM/dd/yyyy HH:mm:ss") LocalDateTime since){
+        StreamingResponseBody body=out->imageExportService.exportImages(since, out);
+
+        return ResponseEntity.ok().
+                header(HttpHeaders.CONTENT_DISPOSITION,"attachment;filename=images.zip").
+                contentType(MediaType.parseMediaType("application/zip")).
+                body(body);
+    }
+
+    /**
+     * Moves the bytes of images stored in the database (t_imagedata) to the image storage.
+     * Can be called repeatedly until no image remains; every call migrates at most maxImages images.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param batchSize          The number of images read per query. Default is 100.
+     * @param maxImages          The maximum number of images migrated by this call. Default is 10000.
+     * @return                   ResponseEntity containing an ImageMigrationReport with the migrated, failed and remaining counts.
+     *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException Thrown if batchSize or maxImages is less than 1.
+     */
+    @PostMapping("/admin/migrate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImageMigrationReport>migrateLegacyImages(@RequestParam(value = "batchSize",required = false,defaultValue = "100") int batchSize,
+                                                                  @RequestParam(value = "maxImages",required = false,defaultValue = "10000") int maxImages){
+        ImageMigrationReport report=imageMigrationService.migrateLegacyImages(batchSize, maxImages);
+
+        return ResponseEntity.ok(report);
+    }
+
     /**
      * Deletes an image file by its identifier.
      * This endpoint is restricted to users with the ADMIN role.
@@ -119,7 +279,17 @@ public class ImageFileController {
         return ResponseEntity.ok(response);
     }
 
+    private String imageCacheControl() {
+        //Spring 5 CacheControl has no immutable() yet
+        return CacheControl.maxAge(imageCacheMaxAgeDays, TimeUnit.DAYS).cachePublic().getHeaderValue() + ", immutable";
+    }
 
-
+    private MediaType mediaTypeOf(String type) {
+        try {
+            return type == null ? MediaType.APPLICATION_OCTET_STREAM : MediaType.parseMediaType(type);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+    }
 
 }
@@ -0,0 +1,70 @@
+package com.example.rentacar.controller;
+
+import com.example.rentacar.dto.response.ResponseMessage;
+import com.example.rentacar.dto.response.VRResponse;
+import com.example.rentacar.pricing.PricingEngine;
+import com.example.rentacar.pricing.PricingRules;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@RestController
+@RequestMapping("/pricing")
+public class PricingController {
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    /**
+     * Retrieves the active pricing rules.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @return ResponseEntity containing the active PricingRules.
+     * The HTTP status in the response is HttpStatus.OK.
+     */
+    @GetMapping("/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PricingRules> getPricingRules() {
+        PricingRules rules = pricingEngine.getRules();
+
+        return ResponseEntity.ok(rules);
+    }
+
+    /**
+     * Replaces the active pricing rules. The new rules are used by every quote made after the call returns.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param pricingRules The request body containing the new rules. Should be valid (@Valid).
+     * @return ResponseEntity containing a VRResponse with information about the update process.
+     * The HTTP status in the response is HttpStatus.OK.
+     * @throws InvalidInputException Thrown if the rules are not consistent.
+     */
+    @PutMapping("/admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<VRResponse> updatePricingRules(@Valid @RequestBody PricingRules pricingRules) {
+        pricingEngine.apply(pricingRules);
+
+        VRResponse response = new VRResponse(ResponseMessage.PRICING_RULES_UPDATED_RESPONSE_MESSAGE, true);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Reloads the pricing rules from the configured rules file.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @return ResponseEntity containing a VRResponse with information about the reload process.
+     * The HTTP status in the response is HttpStatus.OK.
+     * @throws InvalidInputException Thrown if no rules file is configured or its rules are not valid.
+     */
+    @PostMapping("/admin/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<VRResponse> reloadPricingRules() {
+        pricingEngine.reload();
+
+        VRResponse response = new VRResponse(ResponseMessage.PRICING_RULES_RELOADED_RESPONSE_MESSAGE, true);
+        return ResponseEntity.ok(response);
+    }
+}
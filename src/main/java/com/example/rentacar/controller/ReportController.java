@@ -1,18 +1,31 @@
 package com.example.rentacar.controller;
 
+import com.example.rentacar.dto.response.ReportJobResponse;
+import com.example.rentacar.dto.response.ResponseMessage;
+import com.example.rentacar.report.ReportFormat;
+import com.example.rentacar.report.ReportJob;
+import com.example.rentacar.report.ReportJobStatus;
+import com.example.rentacar.report.ReportType;
+import com.example.rentacar.service.ReportJobService;
 import com.example.rentacar.service.ReportService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/excel")
@@ -21,66 +34,188 @@ public class ReportController {
     @Autowired
     private ReportService reportService;
 
+    @Autowired
+    private ReportJobService reportJobService;
+
     /**
-     * Downloads a user report in Excel format.
+     * Downloads a user report in Excel, CSV or NDJSON format.
+     * The report is streamed to the client while it is generated, so it is never held in memory.
+     * CSV and NDJSON are gzip compressed when the client accepts it.
      * This endpoint is restricted to users with the ADMIN role.
      *
-     * @return                   ResponseEntity containing a Resource with the user report data to be downloaded.
+     * @param format             Optional. The report format: xlsx (default), csv or ndjson.
+     * @param acceptEncoding     The Accept-Encoding header of the request.
+     * @return                   ResponseEntity containing a StreamingResponseBody writing the user report.
      *                           The response includes the necessary headers for file download.
      *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException   Thrown if the format is not supported.
      * @throws UnauthorizedException Thrown if the user is not authorized to download the user report.
      */
     @GetMapping("/download/users")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource>getUserReport(){
-        String fileName="users.xlsx";
-        ByteArrayInputStream bais =reportService.getUserReport();
-
-        InputStreamResource file=new InputStreamResource(bais);
+    public ResponseEntity<StreamingResponseBody>getUserReport(@RequestParam(value = "format",required = false,defaultValue = "xlsx") String format,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,required = false) String acceptEncoding){
+        ReportFormat reportFormat=ReportFormat.of(format);
 
-        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,"Attachment;filename="+fileName).
-                contentType(MediaType.parseMediaType("application/vmd.ms-excel")).body(file);
+        return report("users", reportFormat, acceptEncoding, out->reportService.writeUserReport(reportFormat, out));
     }
 
     /**
-     * Downloads a car report in Excel format.
+     * Downloads a car report in Excel, CSV or NDJSON format.
+     * The report is streamed to the client while it is generated, so it is never held in memory.
+     * CSV and NDJSON are gzip compressed when the client accepts it.
      * This endpoint is restricted to users with the ADMIN role.
      *
-     * @return                   ResponseEntity containing a Resource with the car report data to be downloaded.
+     * @param format             Optional. The report format: xlsx (default), csv or ndjson.
+     * @param acceptEncoding     The Accept-Encoding header of the request.
+     * @return                   ResponseEntity containing a StreamingResponseBody writing the car report.
      *                           The response includes the necessary headers for file download.
      *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException   Thrown if the format is not supported.
      * @throws UnauthorizedException Thrown if the user is not authorized to download the car report.
      */
     @GetMapping("/download/cars")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource>getCarReport(){
-        String fileName="cars.xlsx";
-        ByteArrayInputStream bais =reportService.getCarReport();
-
-        InputStreamResource file=new InputStreamResource(bais);
+    public ResponseEntity<StreamingResponseBody>getCarReport(@RequestParam(value = "format",required = false,defaultValue = "xlsx") String format,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,required = false) String acceptEncoding){
+        ReportFormat reportFormat=ReportFormat.of(format);
 
-        return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,"Attachment;filename="+fileName).
-                contentType(MediaType.parseMediaType("application/vmd.ms-excel")).body(file);
+        return report("cars", reportFormat, acceptEncoding, out->reportService.writeCarReport(reportFormat, out));
     }
 
     /**
-     * Downloads a reservation report in Excel format.
+     * Downloads a reservation report in Excel, CSV or NDJSON format.
+     * The report is streamed to the client while it is generated, so it is never held in memory.
+     * CSV and NDJSON are gzip compressed when the client accepts it.
      * This endpoint is restricted to users with the ADMIN role.
      *
-     * @return                   ResponseEntity containing a Resource with the reservation report data to be downloaded.
+     * @param format             Optional. The report format: xlsx (default), csv or ndjson.
+     * @param acceptEncoding     The Accept-Encoding header of the request.
+     * @return                   ResponseEntity containing a StreamingResponseBody writing the reservation report.
      *                           The response includes the necessary headers for file download.
      *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException   Thrown if the format is not supported.
      * @throws UnauthorizedException Thrown if the user is not authorized to download the reservation report.
      */
     @GetMapping("/download/reservations")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Resource>getReservationReport(){
-        String fileName="reservations.xlsx";
-        ByteArrayInputStream bais =reportService.getReservationReport();
+    public ResponseEntity<StreamingResponseBody>getReservationReport(@RequestParam(value = "format",required = false,defaultValue = "xlsx") String format,
+                                                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,required = false) String acceptEncoding){
+        ReportFormat reportFormat=ReportFormat.of(format);
+
+        return report("reservations", reportFormat, acceptEncoding, out->reportService.writeReservationReport(reportFormat, out));
+    }
+
+    /**
+     * Requests a report to be generated in the background.
+     * When the data of the report has not changed since the last request, the same job is returned
+     * and, once finished, its file is downloaded without generating the report again.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param type               The report: users, cars or reservations.
+     * @param format             Optional. The report format: xlsx (default), csv or ndjson.
+     * @return                   ResponseEntity containing the ReportJobResponse with the job identifier and status.
+     *                           The HTTP status in the response is HttpStatus.OK if the report is already generated,
+     *                           HttpStatus.ACCEPTED otherwise.
+     * @throws BadRequestException      Thrown if the report or the format is not supported.
+     * @throws TooManyRequestsException Thrown if too many reports are waiting to be generated.
+     * @throws UnauthorizedException    Thrown if the user is not authorized to request reports.
+     */
+    @PostMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportJobResponse>submitReportJob(@RequestParam("type") String type,
+                                                            @RequestParam(value = "format",required = false,defaultValue = "xlsx") String format){
+        ReportJob job=reportJobService.submit(ReportType.of(type), ReportFormat.of(format));
+
+        HttpStatus status=job.getStatus()==ReportJobStatus.DONE ? HttpStatus.OK : HttpStatus.ACCEPTED;
+        return new ResponseEntity<>(toResponse(job),status);
+    }
+
+    /**
+     * Retrieves the status of a report job.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param id                 The identifier of the report job.
+     * @return                   ResponseEntity containing the ReportJobResponse with the job status.
+     *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws ResourceNotFoundException Thrown if the job is unknown or expired.
+     * @throws UnauthorizedException     Thrown if the user is not authorized to request reports.
+     */
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReportJobResponse>getReportJob(@PathVariable String id){
+        return ResponseEntity.ok(toResponse(reportJobService.getJob(id)));
+    }
 
-        InputStreamResource file=new InputStreamResource(bais);
+    /**
+     * Downloads the file of a finished report job.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param id                 The identifier of the report job.
+     * @return                   ResponseEntity containing a Resource with the report file.
+     *                           The response includes the necessary headers for file download.
+     *                           The HTTP status in the response is HttpStatus.OK.
+     * @throws BadRequestException       Thrown if the report is not generated yet.
+     * @throws ResourceNotFoundException Thrown if the job is unknown or expired.
+     * @throws UnauthorizedException     Thrown if the user is not authorized to request reports.
+     */
+    @GetMapping("/jobs/{id}/download")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Resource>downloadReportJob(@PathVariable String id){
+        ReportJob job=reportJobService.getFinishedJob(id);
+        String fileName=job.getType().getFileName()+"."+job.getFormat().getExtension();
 
         return ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,"Attachment;filename="+fileName).
-                contentType(MediaType.parseMediaType("application/vmd.ms-excel")).body(file);
+                contentType(MediaType.parseMediaType(job.getFormat().getContentType())).
+                body(new FileSystemResource(job.getFile()));
+    }
+
+    private ReportJobResponse toResponse(ReportJob job) {
+        String message;
+        switch (job.getStatus()) {
+            case DONE:
+                message=ResponseMessage.REPORT_JOB_DONE_RESPONSE_MESSAGE;
+                break;
+            case FAILED:
+                message=job.getMessage();
+                break;
+            default:
+                message=ResponseMessage.REPORT_JOB_ACCEPTED_RESPONSE_MESSAGE;
+        }
+        return new ReportJobResponse(job.getId(),job.getType().getFileName(),job.getFormat().getExtension(),
+                job.getStatus(),message,job.getStatus()!=ReportJobStatus.FAILED);
+    }
+
+    private ResponseEntity<StreamingResponseBody> report(String name, ReportFormat format, String acceptEncoding,
+                                                         StreamingResponseBody body) {
+        String fileName=name+"."+format.getExtension();
+        ResponseEntity.BodyBuilder builder=ResponseEntity.ok().header(HttpHeaders.CONTENT_DISPOSITION,"Attachment;filename="+fileName).
+                contentType(MediaType.parseMediaType(format.getContentType()));
+
+        if (!format.isCompressible() || !acceptsGzip(acceptEncoding)) {
+            return builder.body(body);
+        }
+        return builder.header(HttpHeaders.CONTENT_ENCODING,"gzip").
+                header(HttpHeaders.VARY,HttpHeaders.ACCEPT_ENCODING).
+                body(out->{
+                    GZIPOutputStream gzip=new GZIPOutputStream(out, 64 * 1024);
+                    body.writeTo(gzip);
+                    gzip.finish();
+                    gzip.flush();
+                });
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding==null) {
+            return false;
+        }
+        for (String coding:acceptEncoding.split(",")) {
+            String[] parts=coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                //gzip;q=0 reddedildigi anlamina gelir
+                return parts.length<2 || !parts[1].trim().replace(" ","").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 }
@@ -2,13 +2,22 @@ package com.example.rentacar.controller;
 
 import com.example.rentacar.domain.Car;
 import com.example.rentacar.domain.User;
+import com.example.rentacar.dto.QuoteDTO;
 import com.example.rentacar.dto.ReservationDTO;
+import com.example.rentacar.dto.ReservationImportReport;
+import com.example.rentacar.dto.request.QuoteBatchRequest;
 import com.example.rentacar.dto.request.ReservationRequest;
 import com.example.rentacar.dto.request.ReservationUpdateRequest;
 import com.example.rentacar.dto.response.CarAvailabilityResponse;
+import com.example.rentacar.dto.response.ReservationIntakeResponse;
 import com.example.rentacar.dto.response.ResponseMessage;
 import com.example.rentacar.dto.response.VRResponse;
+import com.example.rentacar.intake.IntakeStatus;
+import com.example.rentacar.intake.ReservationIntake;
+import com.example.rentacar.intake.ReservationIntakeRequest;
 import com.example.rentacar.service.CarService;
+import com.example.rentacar.service.ReservationImportService;
+import com.example.rentacar.service.ReservationQuoteService;
 import com.example.rentacar.service.ReservationService;
 import com.example.rentacar.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,6 +32,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -39,6 +49,15 @@ public class ReservationController {
     @Autowired
     UserService userService;
 
+    @Autowired
+    private ReservationQuoteService reservationQuoteService;
+
+    @Autowired
+    private ReservationImportService reservationImportService;
+
+    @Autowired
+    private ReservationIntake reservationIntake;
+
     /**
      * Method that creates a reservation for the specified car.
      * The user must have the permission to reserve the specified car.
@@ -47,8 +66,11 @@ public class ReservationController {
      * @param reservationRequest - Request body containing the details of the reservation.
      * @return ResponseEntity object containing a response indicating the creation of the reservation.
      * The response includes a VRResponse object with the success status and message.
-     * @throws NotFoundException     - If the specified car is not found.
-     * @throws UnauthorizedException - If the user does not have the permission to make a reservation.
+     * When the asynchronous intake is enabled, the request is queued and answered with HttpStatus.ACCEPTED
+     * and a ReservationIntakeResponse whose request id can be polled at /reservation/intake/{requestId}.
+     * @throws NotFoundException        - If the specified car is not found.
+     * @throws UnauthorizedException    - If the user does not have the permission to make a reservation.
+     * @throws TooManyRequestsException - If the asynchronous intake can't queue more requests for the car.
      */
     @PostMapping("/add")
     @PreAuthorize("hasRole('ADMIN')or hasRole('CUSTOMER')")
@@ -57,6 +79,13 @@ public class ReservationController {
 
         Car car = carService.getCarById(carId);
         User user = userService.getCurrentUser();
+        if (reservationIntake.isEnabled()) {
+            ReservationIntakeRequest intakeRequest = reservationIntake.submit(reservationRequest, user, car);
+
+            VRResponse response = new ReservationIntakeResponse(intakeRequest.getRequestId(), intakeRequest.getStatus(),
+                    null, ResponseMessage.RESERVATION_ACCEPTED_RESPONSE_MESSAGE, true);
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        }
         reservationService.createReservation(reservationRequest, user, car);
 
         VRResponse response = new VRResponse(ResponseMessage.RESERVATION_CREATED_RESPONSE_MESSAGE, true);
@@ -64,6 +93,30 @@ public class ReservationController {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Retrieves the state of a reservation request queued by the asynchronous intake.
+     * Only the user who made the request can see it.
+     *
+     * @param requestId The request id returned when the reservation request was accepted.
+     * @return ResponseEntity containing a ReservationIntakeResponse with the status of the request,
+     * the reservation id once it is created or the reason of the failure.
+     * The HTTP status in the response is HttpStatus.OK.
+     * @throws NotFoundException Thrown if the request is unknown, expired or made by another user.
+     */
+    @GetMapping("/intake/{requestId}")
+    @PreAuthorize("hasRole('ADMIN')or hasRole('CUSTOMER')")
+    public ResponseEntity<ReservationIntakeResponse> getIntakeRequest(@PathVariable String requestId) {
+        User user = userService.getCurrentUser();
+        ReservationIntakeRequest intakeRequest = reservationIntake.getRequest(requestId, user.getId());
+
+        String message = intakeRequest.getMessage() == null
+                ? ResponseMessage.RESERVATION_ACCEPTED_RESPONSE_MESSAGE : intakeRequest.getMessage();
+        ReservationIntakeResponse response = new ReservationIntakeResponse(intakeRequest.getRequestId(),
+                intakeRequest.getStatus(), intakeRequest.getReservationId(), message,
+                intakeRequest.getStatus() != IntakeStatus.FAILED);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * This method should be called by users with ADMIN role.
      * Processes the reservation request of a user and returns the result in a ResponseEntity.
@@ -89,6 +142,27 @@ public class ReservationController {
 
     }
 
+    /**
+     * Imports reservations in bulk, e.g. when migrating bookings from another system.
+     * The request body is read as a stream of CSV lines (with a header) or NDJSON objects.
+     * This endpoint is restricted to users with the ADMIN role.
+     *
+     * @param format      The format of the request body, csv or ndjson. Default is csv.
+     * @param inputStream The request body containing the rows.
+     * @return ResponseEntity containing a ReservationImportReport with the row counts and the errors of the rejected rows.
+     * The HTTP status in the response is HttpStatus.OK.
+     * @throws InvalidInputException Thrown if the format is not supported or the body can't be read.
+     */
+    @PostMapping("/admin/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ReservationImportReport> importReservations(@RequestParam(value = "format", required = false,
+                                                                              defaultValue = "csv") String format,
+                                                                      InputStream inputStream) {
+        ReservationImportReport report = reservationImportService.importReservations(inputStream, format);
+
+        return ResponseEntity.ok(report);
+    }
+
     /**
      * Retrieves all reservations from the system.
      * This endpoint is restricted to users with the ADMIN role.
@@ -161,6 +235,24 @@ public class ReservationController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Checks availability and total price for many (car, pick-up, drop-off) tuples in one call.
+     * This endpoint is accessible to users with either ADMIN or CUSTOMER roles.
+     *
+     * @param quoteBatchRequest The request body containing the tuples to quote. Should be valid (@Valid).
+     * @return ResponseEntity containing a list of QuoteDTOs in the same order as the requested tuples.
+     * Tuples that cannot be quoted (unknown car, incorrect time range) carry a message instead of a price.
+     * The HTTP status in the response is HttpStatus.OK.
+     * @throws InvalidInputException Thrown if the batch is empty or larger than the configured maximum.
+     */
+    @PostMapping("/quotes")
+    @PreAuthorize("hasRole('ADMIN')or hasRole('CUSTOMER')")
+    public ResponseEntity<List<QuoteDTO>> getQuotes(@Valid @RequestBody QuoteBatchRequest quoteBatchRequest) {
+        List<QuoteDTO> quotes = reservationQuoteService.getQuotes(quoteBatchRequest.getQuotes());
+
+        return ResponseEntity.ok(quotes);
+    }
+
     /**
      * Updates an existing reservation for a car.
      * This endpoint is restricted to users with the ADMIN role.
@@ -7,6 +7,7 @@ import lombok.Setter;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -27,7 +28,17 @@ public class ImageFile {
 
     private long length;
 
-    @OneToOne(cascade = CascadeType.ALL)
+    //SHA-256 of the content, the bytes are kept in the ImageStorage under this hash
+    @Column(length = 64)
+    private String hash;
+
+    //null for images uploaded before the column existed
+    @Column(updatable = false)
+    private LocalDateTime createDate;
+
+    //only set for images uploaded before the ImageStorage, until they are migrated
+    //lazy: listing or mapping image files must never pull the blob bytes
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private ImageData imageData;
 
     public ImageFile(String name, String type, ImageData imageData) {
@@ -35,5 +46,14 @@ public class ImageFile {
         this.type = type;
         this.imageData = imageData;
         this.length = imageData.getData().length;
+        this.createDate = LocalDateTime.now();
+    }
+
+    public ImageFile(String name, String type, long length, String hash) {
+        this.name = name;
+        this.type = type;
+        this.length = length;
+        this.hash = hash;
+        this.createDate = LocalDateTime.now();
     }
 }
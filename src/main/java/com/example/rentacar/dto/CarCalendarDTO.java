@@ -0,0 +1,28 @@
+package com.example.rentacar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CarCalendarDTO {
+
+    private Long carId;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private int slotMinutes;
+
+    private int slotCount;
+
+    //base64 encoded little-endian long[] bitmap, bit i = slot i (from 00:00 on) is occupied
+    private String occupancy;
+}
@@ -0,0 +1,24 @@
+package com.example.rentacar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+//zip export icin okunan satir, imageDataId sadece tasinmamis (legacy) resimlerde dolu
+@Getter
+@AllArgsConstructor
+public class ImageExportEntry {
+
+    private String id;
+
+    private String name;
+
+    private String type;
+
+    private String hash;
+
+    private Long imageDataId;
+
+    private LocalDateTime createDate;
+}
@@ -0,0 +1,18 @@
+package com.example.rentacar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//t_imagefile satirinin blob olmadan okunan kismi
+@Getter
+@AllArgsConstructor
+public class ImageFileMetadata {
+
+    private String id;
+
+    private String name;
+
+    private String type;
+
+    private long length;
+}
@@ -0,0 +1,18 @@
+package com.example.rentacar.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImageMigrationReport {
+
+    private int migrated;
+
+    private int failed;
+
+    //legacy images still stored in the database after the run
+    private long remaining;
+}
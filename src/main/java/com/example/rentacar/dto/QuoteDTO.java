@@ -0,0 +1,31 @@
+package com.example.rentacar.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteDTO {
+
+    private Long carId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    private LocalDateTime pickUpTime;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    private LocalDateTime dropOffTime;
+
+    private boolean available;
+
+    private Double totalPrice;
+
+    //null if the quote could be computed, otherwise the reason why it could not
+    private String message;
+}
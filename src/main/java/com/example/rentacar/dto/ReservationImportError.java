@@ -0,0 +1,17 @@
+package com.example.rentacar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReservationImportError {
+
+    private long row;
+
+    private String message;
+}
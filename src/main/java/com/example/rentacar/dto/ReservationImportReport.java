@@ -0,0 +1,25 @@
+package com.example.rentacar.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReservationImportReport {
+
+    private long totalRows;
+
+    private long importedRows;
+
+    private long failedRows;
+
+    private List<ReservationImportError> errors = new ArrayList<>();
+
+    //true if more rows failed than errors are listed
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,39 @@
+package com.example.rentacar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RevenueAnalyticsDTO {
+
+    //car grouping only
+    private Long carId;
+
+    //car and model grouping
+    private String model;
+
+    //month grouping only, first day of the month
+    private LocalDate month;
+
+    //reservations overlapping the range or month
+    private long reservations;
+
+    //total price of the reservations, prorated to the part of each reservation inside the range or month
+    private double revenue;
+
+    //revenue / revenue of all groups
+    private double share;
+
+    //1 = highest revenue, car and model grouping only
+    private Integer rank;
+
+    //revenue of this and all previous months, month grouping only
+    private Double cumulativeRevenue;
+}
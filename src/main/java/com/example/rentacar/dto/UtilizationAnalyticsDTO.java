@@ -0,0 +1,41 @@
+package com.example.rentacar.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UtilizationAnalyticsDTO {
+
+    //car grouping only
+    private Long carId;
+
+    //car and model grouping
+    private String model;
+
+    //month grouping only, first day of the month
+    private LocalDate month;
+
+    private long cars;
+
+    //hours of the range or month covered by reservations
+    private double reservedHours;
+
+    //cars * hours of the range or month
+    private double availableHours;
+
+    //reservedHours / availableHours
+    private double utilization;
+
+    //1 = highest utilization, car and model grouping only
+    private Integer rank;
+
+    //utilization - utilization of the previous month, month grouping only
+    private Double change;
+}
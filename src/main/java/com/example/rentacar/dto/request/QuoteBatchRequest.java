@@ -0,0 +1,22 @@
+package com.example.rentacar.dto.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteBatchRequest {
+
+    @Valid
+    @NotEmpty(message = "Please provide at least one quote")
+    private List<QuoteRequest> quotes;
+
+}
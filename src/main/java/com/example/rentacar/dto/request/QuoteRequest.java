@@ -0,0 +1,29 @@
+package com.example.rentacar.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class QuoteRequest {
+
+    @NotNull(message = "Please provide the car id of the quote")
+    private Long carId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    @NotNull(message = "Please provide the pick up time of the quote")
+    private LocalDateTime pickUpTime;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    @NotNull(message = "Please provide the drop off time of the quote")
+    private LocalDateTime dropOffTime;
+
+}
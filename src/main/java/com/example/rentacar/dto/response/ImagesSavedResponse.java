@@ -0,0 +1,25 @@
+package com.example.rentacar.dto.response;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImagesSavedResponse extends VRResponse{
+
+    //yuklenen dosyalarla ayni sirada
+    private List<String> imageIds;
+
+    private Long carId;
+
+    public ImagesSavedResponse(List<String> imageIds,Long carId,String message,boolean success){
+        super(message, success);
+        this.imageIds=imageIds;
+        this.carId=carId;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.example.rentacar.dto.response;
+
+import com.example.rentacar.report.ReportJobStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReportJobResponse extends VRResponse{
+
+    private String jobId;
+
+    private String type;
+
+    private String format;
+
+    private ReportJobStatus status;
+
+    public ReportJobResponse(String jobId,String type,String format,ReportJobStatus status,String message,boolean success){
+        super(message, success);
+        this.jobId=jobId;
+        this.type=type;
+        this.format=format;
+        this.status=status;
+    }
+
+}
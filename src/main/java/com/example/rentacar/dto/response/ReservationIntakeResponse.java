@@ -0,0 +1,26 @@
+package com.example.rentacar.dto.response;
+
+import com.example.rentacar.intake.IntakeStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReservationIntakeResponse extends VRResponse{
+
+    private String requestId;
+
+    private IntakeStatus status;
+
+    private Long reservationId;
+
+    public ReservationIntakeResponse(String requestId, IntakeStatus status, Long reservationId, String message, boolean success){
+        super(message, success);
+        this.requestId=requestId;
+        this.status=status;
+        this.reservationId=reservationId;
+    }
+
+}
@@ -13,6 +13,7 @@ public class ResponseMessage {
 
 
     public final static String IMAGE_SAVED_RESPONSE_MESSAGE="ImageFile Successfully Uploaded";
+    public final static String IMAGES_SAVED_RESPONSE_MESSAGE="ImageFiles Successfully Uploaded";
     public final static String IMAGE_DELETE_RESPONSE_MESSAGE="ImageFile Successfully Deleted";
 
     public final static String CAR_SAVE_RESPONSE_MESSAGE="Car Successfully saved";
@@ -25,4 +26,11 @@ public class ResponseMessage {
     public final static String RESERVATION_CREATED_RESPONSE_MESSAGE="Reservation Successfully Created";
     public final static String RESERVATION_UPDATED_RESPONSE_MESSAGE="Reservation Successfully updated";
     public final static String RESERVATION_DELETE_RESPONSE_MESSAGE="Reservation Successfully Deleted";
+    public final static String RESERVATION_ACCEPTED_RESPONSE_MESSAGE="Reservation request accepted";
+
+    public final static String PRICING_RULES_UPDATED_RESPONSE_MESSAGE="Pricing rules Successfully updated";
+    public final static String PRICING_RULES_RELOADED_RESPONSE_MESSAGE="Pricing rules Successfully reloaded";
+
+    public final static String REPORT_JOB_ACCEPTED_RESPONSE_MESSAGE="Report job accepted";
+    public final static String REPORT_JOB_DONE_RESPONSE_MESSAGE="Report is ready";
 }
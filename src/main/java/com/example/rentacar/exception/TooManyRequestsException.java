@@ -0,0 +1,11 @@
+package com.example.rentacar.exception;
+
+public class TooManyRequestsException extends RuntimeException{
+
+    private static final long serialVersionUID=1L;
+
+    public TooManyRequestsException(String message){
+        super(message);
+    }
+
+}
@@ -87,6 +87,13 @@ public class VisionRentExceptionHandler extends ResponseEntityExceptionHandler {
         return buildResponseEntity(error);
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    protected ResponseEntity<Object>handleTooManyRequestsException(TooManyRequestsException ex, WebRequest request){
+        ApiResponseError error=new ApiResponseError(HttpStatus.TOO_MANY_REQUESTS
+                ,ex.getMessage(),request.getDescription(false));
+        return buildResponseEntity(error);
+    }
+
 
     @ExceptionHandler(AccessDeniedException.class)
     protected ResponseEntity<Object>handleAccessDeniedException(ConflictException ex, WebRequest request){
@@ -18,15 +18,51 @@ public class ErrorMessage {
 
     public final static String IMAGE_USED_MESSAGE="ImageFile is used by other car";
 
+    public final static String IMAGE_SIZE_INCORRECT_MESSAGE="Image width and height must be between 1 and %s";
+    public final static String IMAGE_RESIZE_ERROR_MESSAGE="Image could not be resized";
+    public final static String IMAGE_RENDITION_BUSY_MESSAGE="Too many image resize requests, please try again later";
+    public final static String IMAGE_BATCH_SIZE_INCORRECT_MESSAGE="Upload must contain 1 to %s files";
+    public final static String IMAGE_TYPE_INCORRECT_MESSAGE="File %s is not an image";
+    public final static String IMAGE_UPLOAD_BUSY_MESSAGE="Too many image uploads, please try again later";
+    public final static String IMAGE_MIGRATION_LIMIT_INCORRECT_MESSAGE="Image migration batch size and max images must be at least 1";
+
 
     public final static String RESERVATION_TIME_INCORRECT_MESSAGE="Reservation pick up time or drop off time not correct";
     public final static String CAR_NOT_AVAILABLE_MESSAGE="Car is not available for selected time";
 
+    public final static String CALENDAR_RANGE_INCORRECT_MESSAGE="Calendar range not correct, it must cover 1 to %s days";
+
+    public final static String QUOTE_BATCH_TOO_LARGE_MESSAGE="Quote batch can contain at most %s quotes";
+
+    public final static String CAR_ID_NOT_FOUND_MESSAGE="Car with id %s not found";
+
+    public final static String PRICING_RULES_INCORRECT_MESSAGE="Pricing rules are not correct";
+
+    public final static String PRICING_RULES_FILE_MISSING_MESSAGE="Pricing rules file is not configured";
+
+    public final static String IMPORT_FORMAT_NOT_SUPPORTED_MESSAGE="Import format %s is not supported, use csv or ndjson";
+    public final static String IMPORT_READ_ERROR_MESSAGE="Import data could not be read";
+    public final static String IMPORT_ROW_INCOMPLETE_MESSAGE="Car id, user id, times and locations are required";
+    public final static String IMPORT_LOCATION_TOO_LONG_MESSAGE="Pick up and drop off location must be max 150 chars";
+    public final static String IMPORT_STATUS_INCORRECT_MESSAGE="Reservation status %s not correct";
+    public final static String USER_ID_NOT_FOUND_MESSAGE="User with id %s not found";
+
+    public final static String INTAKE_QUEUE_FULL_MESSAGE="Too many reservation requests for this car, please try again later";
+    public final static String INTAKE_REQUEST_NOT_FOUND_MESSAGE="Reservation request %s not found";
+    public final static String INTAKE_PROCESSING_ERROR_MESSAGE="Reservation request could not be processed";
+
     public final static String RESERVATION_STATUS_CANT_CHANGE_MESSAGE="Reservation can't be updated for Canceled or done reservations";
 
     public final static String CAR_USED_BY_RESERVATION_MESSAGE="Car couldn't be deleted. Car is used by a reservation";
 
 
     public final static String EXCEL_REPORT_ERROR_MESSAGE="Error occured while generating excel report";
+    public final static String REPORT_FORMAT_INCORRECT_MESSAGE="Report format %s not supported, use xlsx, csv or ndjson";
+    public final static String REPORT_TYPE_INCORRECT_MESSAGE="Report %s not found, use users, cars or reservations";
+    public final static String REPORT_JOB_NOT_FOUND_MESSAGE="Report job with id %s not found";
+    public final static String REPORT_JOB_NOT_FINISHED_MESSAGE="Report job %s is not finished";
+    public final static String REPORT_JOB_BUSY_MESSAGE="Too many report jobs, please try again later";
+    public final static String ANALYTICS_GROUP_INCORRECT_MESSAGE="Grouping %s not supported, use car, model or month";
+    public final static String ANALYTICS_RANGE_INCORRECT_MESSAGE="Analytics range not correct, it must cover 1 to %s days";
 
 }
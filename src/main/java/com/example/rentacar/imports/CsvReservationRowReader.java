@@ -0,0 +1,127 @@
+package com.example.rentacar.imports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads comma separated rows. The first line is a header naming the columns
+ * (carId, userId, pickUpTime, dropOffTime, pickUpLocation, dropOffLocation and optionally status, totalPrice),
+ * in any order. Values may be double-quoted to contain commas; a value can't span several lines.
+ */
+public class CsvReservationRowReader implements ReservationRowReader {
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
+
+    private final BufferedReader reader;
+
+    private Map<String, Integer> columns;
+
+    private long lineNumber;
+
+    public CsvReservationRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ReservationImportRow next() throws IOException {
+        if (columns == null) {
+            readHeader();
+        }
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        ReservationImportRow row = new ReservationImportRow();
+        row.setRowNumber(lineNumber);
+        try {
+            List<String> values = split(line);
+            row.setCarId(parseLong(value(values, "carid")));
+            row.setUserId(parseLong(value(values, "userid")));
+            row.setPickUpTime(parseDateTime(value(values, "pickuptime")));
+            row.setDropOffTime(parseDateTime(value(values, "dropofftime")));
+            row.setPickUpLocation(value(values, "pickuplocation"));
+            row.setDropOffLocation(value(values, "dropofflocation"));
+            row.setStatus(value(values, "status"));
+            String totalPrice = value(values, "totalprice");
+            row.setTotalPrice(totalPrice == null ? null : Double.valueOf(totalPrice));
+        } catch (RuntimeException e) {
+            row.setError("Line could not be parsed : " + e.getMessage());
+        }
+        return row;
+    }
+
+    private void readHeader() throws IOException {
+        columns = new HashMap<>();
+        String header = reader.readLine();
+        lineNumber++;
+        if (header == null) {
+            return;
+        }
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+    }
+
+    private String value(List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Long parseLong(String value) {
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        return value == null ? null : LocalDateTime.parse(value, DATE_TIME_FORMATTER);
+    }
+
+    static List<String> split(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.rentacar.imports;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Active periods accepted so far by a bulk import, per car.
+ * Accepted periods never overlap each other, so sorting them by start also sorts them by end and
+ * an overlap probe only has to look at the period with the greatest start not after the probe's end.
+ * Periods are closed intervals in epoch seconds, kept in primitive arrays like in {@code CarTimeline}:
+ * 16 bytes per period instead of a boxed map entry and two boxed longs.
+ */
+public class ImportedIntervals {
+
+    private final Map<Long, CarIntervals> intervals = new HashMap<>();
+
+    public boolean overlaps(Long carId, long start, long end) {
+        CarIntervals carIntervals = intervals.get(carId);
+        return carIntervals != null && carIntervals.overlaps(start, end);
+    }
+
+    public void add(Long carId, long start, long end) {
+        intervals.computeIfAbsent(carId, id -> new CarIntervals()).add(start, end);
+    }
+
+    public void remove(Long carId, long start) {
+        CarIntervals carIntervals = intervals.get(carId);
+        if (carIntervals != null) {
+            carIntervals.remove(start);
+        }
+    }
+
+    /**
+     * Periods of one car sorted by start; the arrays grow by doubling.
+     */
+    private static class CarIntervals {
+
+        private long[] starts = new long[8];
+
+        private long[] ends = new long[8];
+
+        private int size;
+
+        private boolean overlaps(long start, long end) {
+            int i = upperBound(end) - 1;
+            return i >= 0 && ends[i] >= start;
+        }
+
+        private void add(long start, long end) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+            }
+            //sirali yuklemelerde her zaman sona eklenir, kaydirma gerekmez
+            int pos = upperBound(start);
+            System.arraycopy(starts, pos, starts, pos + 1, size - pos);
+            System.arraycopy(ends, pos, ends, pos + 1, size - pos);
+            starts[pos] = start;
+            ends[pos] = end;
+            size++;
+        }
+
+        private void remove(long start) {
+            int pos = upperBound(start) - 1;
+            if (pos < 0 || starts[pos] != start) {
+                return;
+            }
+            System.arraycopy(starts, pos + 1, starts, pos, size - pos - 1);
+            System.arraycopy(ends, pos + 1, ends, pos, size - pos - 1);
+            size--;
+        }
+
+        /**
+         * First index whose start is strictly greater than the given value.
+         */
+        private int upperBound(long value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.rentacar.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads one JSON object per line. Blank lines are skipped.
+ */
+public class NdjsonReservationRowReader implements ReservationRowReader {
+
+    private final BufferedReader reader;
+
+    private final ObjectReader rowReader;
+
+    private long lineNumber;
+
+    public NdjsonReservationRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.rowReader = objectMapper.readerFor(ReservationImportRow.class);
+    }
+
+    @Override
+    public ReservationImportRow next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        ReservationImportRow row;
+        try {
+            row = rowReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            row = new ReservationImportRow();
+            row.setError("Line could not be parsed : " + e.getOriginalMessage());
+        }
+        row.setRowNumber(lineNumber);
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.rentacar.imports;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One reservation of a bulk import, as read from a CSV line or an NDJSON object.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReservationImportRow {
+
+    @JsonIgnore
+    private long rowNumber;
+
+    private Long carId;
+
+    private Long userId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    private LocalDateTime pickUpTime;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    private LocalDateTime dropOffTime;
+
+    private String pickUpLocation;
+
+    private String dropOffLocation;
+
+    //CREATED if empty
+    private String status;
+
+    //calculated with the active pricing rules if empty
+    private Double totalPrice;
+
+    //set by the reader when the line could not be parsed
+    @JsonIgnore
+    private String error;
+}
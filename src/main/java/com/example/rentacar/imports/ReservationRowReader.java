@@ -0,0 +1,18 @@
+package com.example.rentacar.imports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the rows of a bulk reservation import one at a time, so the upload never has to fit in memory.
+ */
+public interface ReservationRowReader extends Closeable {
+
+    /**
+     * Reads the next row. A line that cannot be parsed is returned as a row carrying an error message.
+     *
+     * @return The next row, or null at the end of the input.
+     * @throws IOException Thrown if the input can't be read.
+     */
+    ReservationImportRow next() throws IOException;
+}
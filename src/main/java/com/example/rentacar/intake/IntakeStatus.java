@@ -0,0 +1,8 @@
+package com.example.rentacar.intake;
+
+public enum IntakeStatus {
+    QUEUED,
+    PROCESSING,
+    CREATED,
+    FAILED
+}
@@ -0,0 +1,183 @@
+package com.example.rentacar.intake;
+
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.Reservation;
+import com.example.rentacar.domain.User;
+import com.example.rentacar.dto.request.ReservationRequest;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.ConflictException;
+import com.example.rentacar.exception.ResourceNotFoundException;
+import com.example.rentacar.exception.TooManyRequestsException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.service.ReservationService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional asynchronous intake of reservation requests ({@code rentacar.reservation.intake.async=true}).
+ * Requests are partitioned by car id over a fixed number of lanes. Every lane is a single thread with a bounded
+ * queue, so the requests of a car are processed in arrival order and a full lane rejects new requests instead
+ * of letting them pile up in the servlet container.
+ */
+@Component
+public class ReservationIntake {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationIntake.class);
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rentacar.reservation.intake.async:false}")
+    private boolean enabled;
+
+    @Value("${rentacar.reservation.intake.lanes:8}")
+    private int laneCount;
+
+    @Value("${rentacar.reservation.intake.queueCapacity:100}")
+    private int queueCapacity;
+
+    @Value("${rentacar.reservation.intake.resultTtlMs:600000}")
+    private long resultTtlMs;
+
+    private ThreadPoolExecutor[] lanes;
+
+    private final Map<String, ReservationIntakeRequest> requests = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = createLane(i);
+            ThreadPoolExecutor lane = lanes[i];
+            Gauge.builder("rentacar.reservation.intake.lane.depth", lane, l -> l.getQueue().size())
+                    .description("Reservation requests waiting in the intake lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        Gauge.builder("rentacar.reservation.intake.pending", requests,
+                        r -> r.values().stream().filter(request -> !request.isFinished()).count())
+                .description("Reservation requests accepted by the intake and not processed yet")
+                .register(meterRegistry);
+    }
+
+    private ThreadPoolExecutor createLane(int index) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "reservation-intake-" + index + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a reservation request on the lane of its car.
+     * The request times are validated before queueing, so obviously wrong requests are rejected synchronously.
+     *
+     * @param reservationRequest The reservation request containing details of the reservation.
+     * @param user               The user making the reservation.
+     * @param car                The car for which the reservation is being made.
+     * @return The state of the queued request, to be polled with its request id.
+     * @throws BadRequestException      Thrown if the reservation time is incorrect.
+     * @throws TooManyRequestsException Thrown if the lane of the car is full.
+     */
+    public ReservationIntakeRequest submit(ReservationRequest reservationRequest, User user, Car car) {
+        reservationService.checkReservationTimeIsCorrect(reservationRequest.getPickUpTime(), reservationRequest.getDropOffTime());
+
+        ReservationIntakeRequest intakeRequest = new ReservationIntakeRequest(UUID.randomUUID().toString(),
+                user.getId(), car.getId());
+        requests.put(intakeRequest.getRequestId(), intakeRequest);
+        try {
+            laneOf(car.getId()).execute(() -> process(intakeRequest, reservationRequest, user, car));
+        } catch (RejectedExecutionException e) {
+            requests.remove(intakeRequest.getRequestId());
+            throw new TooManyRequestsException(ErrorMessage.INTAKE_QUEUE_FULL_MESSAGE);
+        }
+        return intakeRequest;
+    }
+
+    /**
+     * Retrieves the state of a request accepted by the intake.
+     *
+     * @param requestId The request id returned when the request was queued.
+     * @param userId    The identifier of the user polling; only the user who made the request can see it.
+     * @return The state of the request.
+     * @throws ResourceNotFoundException Thrown if the request is unknown, expired or belongs to another user.
+     */
+    public ReservationIntakeRequest getRequest(String requestId, Long userId) {
+        ReservationIntakeRequest intakeRequest = requests.get(requestId);
+        if (intakeRequest == null || !intakeRequest.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException(String.format(ErrorMessage.INTAKE_REQUEST_NOT_FOUND_MESSAGE, requestId));
+        }
+        return intakeRequest;
+    }
+
+    private void process(ReservationIntakeRequest intakeRequest, ReservationRequest reservationRequest, User user, Car car) {
+        intakeRequest.processing();
+        try {
+            Reservation reservation = reservationService.createReservation(reservationRequest, user, car);
+            intakeRequest.created(reservation.getId());
+        } catch (BadRequestException | ConflictException e) {
+            intakeRequest.failed(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Reservation request {} failed : {}", intakeRequest.getRequestId(), e.getMessage());
+            intakeRequest.failed(ErrorMessage.INTAKE_PROCESSING_ERROR_MESSAGE);
+        }
+    }
+
+    private ThreadPoolExecutor laneOf(Long carId) {
+        return lanes[(int) Math.floorMod(carId, (long) lanes.length)];
+    }
+
+    /**
+     * Forgets finished requests once their result has been kept for the configured time.
+     */
+    @Scheduled(fixedDelayString = "${rentacar.reservation.intake.cleanupDelayMs:60000}")
+    public void expireFinishedRequests() {
+        long expiredBefore = System.currentTimeMillis() - resultTtlMs;
+        requests.values().removeIf(request -> request.isFinished() && request.getUpdatedAt() < expiredBefore);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (lanes == null) {
+            return;
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            if (!lane.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Reservation intake lane did not finish its queued requests in time");
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.rentacar.intake;
+
+import lombok.Getter;
+
+/**
+ * State of one reservation request accepted by the asynchronous intake.
+ * Fields are written by the lane thread and read by polling requests, hence volatile.
+ */
+@Getter
+public class ReservationIntakeRequest {
+
+    private final String requestId;
+
+    private final Long userId;
+
+    private final Long carId;
+
+    private volatile IntakeStatus status = IntakeStatus.QUEUED;
+
+    private volatile String message;
+
+    private volatile Long reservationId;
+
+    //System.currentTimeMillis() of the last status change, used to expire finished requests
+    private volatile long updatedAt = System.currentTimeMillis();
+
+    public ReservationIntakeRequest(String requestId, Long userId, Long carId) {
+        this.requestId = requestId;
+        this.userId = userId;
+        this.carId = carId;
+    }
+
+    void processing() {
+        status = IntakeStatus.PROCESSING;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    void created(Long reservationId) {
+        this.reservationId = reservationId;
+        status = IntakeStatus.CREATED;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    void failed(String message) {
+        this.message = message;
+        status = IntakeStatus.FAILED;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    boolean isFinished() {
+        return status == IntakeStatus.CREATED || status == IntakeStatus.FAILED;
+    }
+}
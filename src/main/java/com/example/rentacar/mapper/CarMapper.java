@@ -24,6 +24,7 @@ public interface CarMapper {
     @Mapping(source = "image",target = "image",qualifiedByName = "getImageAsString")
     CarDTO carToCarDTO(Car car);
 
+    //ImageFile.imageData lazy oldugu icin sadece id okunur, t_imagedata sorgulanmaz
     @Named("getImageAsString")
     public static Set<String> getImageIds(Set<ImageFile> imageFiles){
         Set<String> imgs=new HashSet<>();
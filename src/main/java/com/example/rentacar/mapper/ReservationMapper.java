@@ -25,6 +25,7 @@ public interface ReservationMapper {
 
     List<ReservationDTO>map(List<Reservation>reservationList);
 
+    //ImageFile.imageData lazy oldugu icin sadece id okunur, t_imagedata sorgulanmaz
     @Named("getImageAsString")
     public static Set<String>getImageIds(Set<ImageFile>imageFiles){
         Set<String>imgs=new HashSet<>();
@@ -0,0 +1,213 @@
+package com.example.rentacar.pricing;
+
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-indexed form of {@link PricingRules}.
+ * Season percentages are spread over a 366 entry day-of-year table, duration tiers are sorted arrays and
+ * model prices are converted to minor units once, so a quote only does array lookups and long arithmetic.
+ * All amounts are in minor currency units (cents).
+ */
+public final class CompiledPricing {
+
+    private static final long SECONDS_PER_HOUR = 3600L;
+
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    //leap year day-of-year offset of the first day of every month, Feb 29 is index 59
+    private static final int[] MONTH_OFFSETS = {0, 31, 60, 91, 121, 152, 182, 213, 244, 274, 305, 335};
+
+    private static final int DAYS_IN_TABLE = 366;
+
+    private final PricingRules rules;
+
+    private final int[] seasonPercents;
+
+    private final int weekendSurchargePercent;
+
+    private final long[] tierMinHours;
+
+    private final int[] tierDiscountPercents;
+
+    private final Map<String, Long> modelRates;
+
+    private CompiledPricing(PricingRules rules, int[] seasonPercents, int weekendSurchargePercent,
+                            long[] tierMinHours, int[] tierDiscountPercents, Map<String, Long> modelRates) {
+        this.rules = rules;
+        this.seasonPercents = seasonPercents;
+        this.weekendSurchargePercent = weekendSurchargePercent;
+        this.tierMinHours = tierMinHours;
+        this.tierDiscountPercents = tierDiscountPercents;
+        this.modelRates = modelRates;
+    }
+
+    /**
+     * Compiles the given rules. When seasons overlap, the later season of the list wins.
+     *
+     * @param rules The rules to compile.
+     * @return The compiled pricing.
+     * @throws BadRequestException Thrown if the rules are not consistent.
+     */
+    public static CompiledPricing compile(PricingRules rules) {
+        int[] seasonPercents = new int[DAYS_IN_TABLE];
+        for (SeasonRate season : nullSafe(rules.getSeasons())) {
+            if (season.getFrom() == null || season.getTo() == null) {
+                throw new BadRequestException(ErrorMessage.PRICING_RULES_INCORRECT_MESSAGE);
+            }
+            int from = dayIndex(season.getFrom().getMonthValue(), season.getFrom().getDayOfMonth());
+            int to = dayIndex(season.getTo().getMonthValue(), season.getTo().getDayOfMonth());
+            for (int day = from; ; day = (day + 1) % DAYS_IN_TABLE) {
+                seasonPercents[day] = season.getPercent();
+                if (day == to) {
+                    break;
+                }
+            }
+        }
+
+        List<DurationTier> tiers = new ArrayList<>(nullSafe(rules.getDurationTiers()));
+        tiers.sort(Comparator.comparingLong(DurationTier::getMinHours));
+        long[] tierMinHours = new long[tiers.size()];
+        int[] tierDiscountPercents = new int[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            DurationTier tier = tiers.get(i);
+            if (tier.getMinHours() < 1 || tier.getDiscountPercent() < 0 || tier.getDiscountPercent() > 100
+                    || (i > 0 && tierMinHours[i - 1] == tier.getMinHours())) {
+                throw new BadRequestException(ErrorMessage.PRICING_RULES_INCORRECT_MESSAGE);
+            }
+            tierMinHours[i] = tier.getMinHours();
+            tierDiscountPercents[i] = tier.getDiscountPercent();
+        }
+
+        Map<String, Long> modelRates = new HashMap<>();
+        if (rules.getModelPricePerHour() != null) {
+            rules.getModelPricePerHour().forEach((model, price) -> {
+                if (model == null || price == null || price < 0) {
+                    throw new BadRequestException(ErrorMessage.PRICING_RULES_INCORRECT_MESSAGE);
+                }
+                modelRates.put(model, toMinor(price));
+            });
+        }
+        return new CompiledPricing(rules, seasonPercents, rules.getWeekendSurchargePercent(),
+                tierMinHours, tierDiscountPercents, Collections.unmodifiableMap(modelRates));
+    }
+
+    /**
+     * Calculates the price of a rental. Every started hour is billed, at the rate of the day it starts in.
+     *
+     * @param model             The model of the car, used for the per-model price.
+     * @param defaultRateMinor  The hourly price of the car in minor units, used when the model has no price.
+     * @param pickUpSecond      The pick-up time in epoch seconds.
+     * @param dropOffSecond     The drop-off time in epoch seconds.
+     * @return The total price in minor units.
+     */
+    public long quote(String model, long defaultRateMinor, long pickUpSecond, long dropOffSecond) {
+        long minutes = (dropOffSecond - pickUpSecond) / 60;
+        if (minutes <= 0) {
+            return 0;
+        }
+        long hours = (minutes + 59) / 60;
+        Long modelRate = model == null ? null : modelRates.get(model);
+        long rate = modelRate == null ? defaultRateMinor : modelRate;
+
+        //sum of billed hours weighted by the percent of their day
+        long weightedHours = 0;
+        long hourStart = pickUpSecond;
+        long remaining = hours;
+        while (remaining > 0) {
+            long epochDay = Math.floorDiv(hourStart, SECONDS_PER_DAY);
+            long untilDayEnd = (epochDay + 1) * SECONDS_PER_DAY - hourStart;
+            long hoursInDay = Math.min(remaining, (untilDayEnd + SECONDS_PER_HOUR - 1) / SECONDS_PER_HOUR);
+
+            int percent = 100 + seasonPercents[dayIndexOfEpochDay(epochDay)];
+            if (isWeekend(epochDay)) {
+                percent += weekendSurchargePercent;
+            }
+            weightedHours += hoursInDay * Math.max(0, percent);
+            remaining -= hoursInDay;
+            hourStart += hoursInDay * SECONDS_PER_HOUR;
+        }
+        long total = divideHalfUp(rate * weightedHours, 100);
+
+        int discount = discountPercent(hours);
+        return discount == 0 ? total : divideHalfUp(total * (100 - discount), 100);
+    }
+
+    public PricingRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Converts an amount in major units (e.g. 12.5) to minor units (e.g. 1250).
+     *
+     * @param amount The amount in major units.
+     * @return The amount in minor units, rounded half up.
+     */
+    public static long toMinor(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Converts an amount in minor units to major units.
+     *
+     * @param amount The amount in minor units.
+     * @return The amount in major units.
+     */
+    public static double toMajor(long amount) {
+        return amount / 100.0;
+    }
+
+    private int discountPercent(long hours) {
+        int low = 0;
+        int high = tierMinHours.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tierMinHours[mid] <= hours) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low == 0 ? 0 : tierDiscountPercents[low - 1];
+    }
+
+    private static long divideHalfUp(long value, long divisor) {
+        return Math.floorDiv(value + divisor / 2, divisor);
+    }
+
+    private static boolean isWeekend(long epochDay) {
+        //1970-01-01 is a Thursday, 0 = Monday
+        int dayOfWeek = (int) Math.floorMod(epochDay + 3, 7L);
+        return dayOfWeek >= 5;
+    }
+
+    private static int dayIndex(int month, int dayOfMonth) {
+        return MONTH_OFFSETS[month - 1] + dayOfMonth - 1;
+    }
+
+    /**
+     * Month and day of an epoch day without creating a LocalDate (days-from-civil inverse).
+     */
+    private static int dayIndexOfEpochDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int dayOfMonth = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        return dayIndex(month, dayOfMonth);
+    }
+
+    private static <T> List<T> nullSafe(List<T> list) {
+        return list == null ? Collections.emptyList() : list;
+    }
+}
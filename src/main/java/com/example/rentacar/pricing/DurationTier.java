@@ -0,0 +1,26 @@
+package com.example.rentacar.pricing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Discount applied to the whole rental once it lasts at least {@code minHours} billed hours.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class DurationTier {
+
+    @Min(value = 1, message = "Duration tier must start at 1 hour or more")
+    private long minHours;
+
+    @Min(value = 0, message = "Discount percent must be at least 0")
+    @Max(value = 100, message = "Discount percent must be at most 100")
+    private int discountPercent;
+}
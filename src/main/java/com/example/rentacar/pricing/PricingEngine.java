@@ -0,0 +1,97 @@
+package com.example.rentacar.pricing;
+
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Holds the active {@link CompiledPricing} and swaps it atomically when the rules are reloaded,
+ * so quotes never see a half-applied rule set and never wait for a reload.
+ * Rules are read from {@code rentacar.pricing.rulesFile} at startup when the property is set,
+ * otherwise every car is priced with its own price per hour.
+ */
+@Component
+public class PricingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PricingEngine.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${rentacar.pricing.rulesFile:}")
+    private String rulesFile;
+
+    private volatile CompiledPricing pricing = CompiledPricing.compile(new PricingRules());
+
+    @PostConstruct
+    public void init() {
+        if (!rulesFile.isEmpty()) {
+            reload();
+        }
+    }
+
+    /**
+     * Reads the rules file again and activates its rules.
+     *
+     * @return The activated rules.
+     * @throws BadRequestException Thrown if no rules file is configured or it cannot be read or compiled.
+     */
+    public synchronized PricingRules reload() {
+        if (rulesFile.isEmpty()) {
+            throw new BadRequestException(ErrorMessage.PRICING_RULES_FILE_MISSING_MESSAGE);
+        }
+        PricingRules rules;
+        try {
+            rules = objectMapper.readValue(new File(rulesFile), PricingRules.class);
+        } catch (IOException e) {
+            logger.error("Pricing rules could not be read from {} : {}", rulesFile, e.getMessage());
+            throw new BadRequestException(ErrorMessage.PRICING_RULES_INCORRECT_MESSAGE);
+        }
+        return apply(rules);
+    }
+
+    /**
+     * Compiles and activates the given rules. The rules file is not changed.
+     *
+     * @param rules The rules to activate.
+     * @return The activated rules.
+     * @throws BadRequestException Thrown if the rules are not consistent.
+     */
+    public synchronized PricingRules apply(PricingRules rules) {
+        pricing = CompiledPricing.compile(rules);
+        logger.info("Pricing rules activated with {} seasons and {} duration tiers",
+                rules.getSeasons() == null ? 0 : rules.getSeasons().size(),
+                rules.getDurationTiers() == null ? 0 : rules.getDurationTiers().size());
+        return rules;
+    }
+
+    public PricingRules getRules() {
+        return pricing.getRules();
+    }
+
+    /**
+     * Calculates the total price of renting a car for the given time range.
+     *
+     * @param car         The car to rent.
+     * @param pickUpTime  The pick-up time.
+     * @param dropOffTime The drop-off time.
+     * @return The total price in minor currency units.
+     */
+    public long quote(Car car, LocalDateTime pickUpTime, LocalDateTime dropOffTime) {
+        return pricing.quote(car.getModel(), CompiledPricing.toMinor(car.getPricePerHour()),
+                ReservationAvailabilityIndex.toEpochSecond(pickUpTime),
+                ReservationAvailabilityIndex.toEpochSecond(dropOffTime));
+    }
+}
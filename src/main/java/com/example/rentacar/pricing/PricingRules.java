@@ -0,0 +1,38 @@
+package com.example.rentacar.pricing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Editable form of the pricing rules, as read from the rules file or the admin API.
+ * It is compiled into a {@link CompiledPricing} before it is used for quotes.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricingRules {
+
+    @Valid
+    private List<SeasonRate> seasons = new ArrayList<>();
+
+    @Min(value = -100, message = "Weekend surcharge percent must be at least -100")
+    @Max(value = 1000, message = "Weekend surcharge percent must be at most 1000")
+    private int weekendSurchargePercent;
+
+    @Valid
+    private List<DurationTier> durationTiers = new ArrayList<>();
+
+    //model -> price per hour, replaces the price of every car of the model
+    private Map<String, Double> modelPricePerHour = new HashMap<>();
+}
@@ -0,0 +1,35 @@
+package com.example.rentacar.pricing;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.MonthDay;
+
+/**
+ * Percentage added to (or, when negative, removed from) the hourly rate on every day between
+ * {@code from} and {@code to} (inclusive) of every year. A range may wrap around the new year.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeasonRate {
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM-dd")
+    @NotNull(message = "Please provide the first day of the season")
+    private MonthDay from;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM-dd")
+    @NotNull(message = "Please provide the last day of the season")
+    private MonthDay to;
+
+    @Min(value = -100, message = "Season percent must be at least -100")
+    @Max(value = 1000, message = "Season percent must be at most 1000")
+    private int percent;
+}
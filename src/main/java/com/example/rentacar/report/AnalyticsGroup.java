@@ -0,0 +1,51 @@
+package com.example.rentacar.report;
+
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+
+/**
+ * Grouping of the analytics reports. Every group produces the same columns (car_id, model, month_start),
+ * the ones the group does not use are null.
+ */
+public enum AnalyticsGroup {
+
+    CAR("car", "c.id as car_id, c.model as model, null::timestamp as month_start", "c.id, c.model"),
+    MODEL("model", "null::bigint as car_id, c.model as model, null::timestamp as month_start", "c.model"),
+    MONTH("month", null, null);
+
+    private final String name;
+
+    private final String selectColumns;
+
+    private final String groupColumns;
+
+    AnalyticsGroup(String name, String selectColumns, String groupColumns) {
+        this.name = name;
+        this.selectColumns = selectColumns;
+        this.groupColumns = groupColumns;
+    }
+
+    public String getSelectColumns() {
+        return selectColumns;
+    }
+
+    public String getGroupColumns() {
+        return groupColumns;
+    }
+
+    /**
+     * Resolves a grouping from its name, e.g. a request parameter.
+     *
+     * @param value The name of the grouping (car, model or month), case insensitive.
+     * @return The grouping.
+     * @throws BadRequestException Thrown if there is no such grouping.
+     */
+    public static AnalyticsGroup of(String value) {
+        for (AnalyticsGroup group : values()) {
+            if (group.name.equalsIgnoreCase(value)) {
+                return group;
+            }
+        }
+        throw new BadRequestException(String.format(ErrorMessage.ANALYTICS_GROUP_INCORRECT_MESSAGE, value));
+    }
+}
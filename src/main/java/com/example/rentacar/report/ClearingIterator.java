@@ -0,0 +1,48 @@
+package com.example.rentacar.report;
+
+import javax.persistence.EntityManager;
+import java.util.Iterator;
+
+/**
+ * Iterator over entities read from a database cursor that clears the persistence context every {@code clearEvery}
+ * rows, so the entities already written to a report can be garbage collected.
+ * The context is cleared in {@link #hasNext()}, before the cursor is moved: Hibernate's stream iterator already
+ * fetches and hydrates the next row there, so clearing any later would detach the row about to be returned.
+ */
+public final class ClearingIterator<T> implements Iterator<T> {
+
+    private final Iterator<T> delegate;
+
+    private final EntityManager entityManager;
+
+    private final int clearEvery;
+
+    //rows returned so far
+    private int count;
+
+    //value of count when the context was last cleared, hasNext() may be called several times per row
+    private int clearedAt;
+
+    public ClearingIterator(Iterator<T> delegate, EntityManager entityManager, int clearEvery) {
+        this.delegate = delegate;
+        this.entityManager = entityManager;
+        this.clearEvery = clearEvery;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (count > clearedAt && count % clearEvery == 0) {
+            entityManager.clear();
+            clearedAt = count;
+        }
+        return delegate.hasNext();
+    }
+
+    @Override
+    public T next() {
+        //next() without hasNext() also moves the cursor
+        hasNext();
+        count++;
+        return delegate.next();
+    }
+}
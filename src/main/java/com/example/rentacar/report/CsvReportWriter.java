@@ -0,0 +1,87 @@
+package com.example.rentacar.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Writes a report as RFC 4180 CSV with a header line. Every row is built in one reused buffer and copied to a
+ * buffered writer; values are quoted only when they contain a separator, a quote or a line break.
+ */
+public class CsvReportWriter implements ReportWriter, RowSink {
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private Writer writer;
+
+    private int column;
+
+    @Override
+    public <T> void write(ReportRowProducer<T> producer, Iterator<T> items, OutputStream out) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        for (String header : producer.getHeaders()) {
+            cell(header);
+        }
+        endLine();
+        while (items.hasNext()) {
+            producer.produce(items.next(), this);
+            endLine();
+        }
+        writer.flush();
+    }
+
+    private void endLine() throws IOException {
+        line.append('\r').append('\n');
+        writer.append(line);
+        line.setLength(0);
+        column = 0;
+    }
+
+    private void separator() {
+        if (column++ > 0) {
+            line.append(',');
+        }
+    }
+
+    @Override
+    public void cell(long value) {
+        separator();
+        line.append(value);
+    }
+
+    @Override
+    public void cell(double value) {
+        separator();
+        line.append(value);
+    }
+
+    @Override
+    public void cell(String value) {
+        separator();
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.rentacar.report;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes a report with a streaming {@link SXSSFWorkbook}: only the last {@code rowWindow} rows are kept in memory,
+ * older rows are flushed to a compressed temporary file, and the workbook is written straight to the stream.
+ * Heap use therefore does not depend on the number of rows.
+ */
+public class ExcelReportWriter implements ReportWriter, RowSink {
+
+    private final int rowWindow;
+
+    private Row row;
+
+    private int column;
+
+    public ExcelReportWriter(int rowWindow) {
+        this.rowWindow = rowWindow;
+    }
+
+    @Override
+    public <T> void write(ReportRowProducer<T> producer, Iterator<T> items, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        //pencereden tasan satirlar gecici dosyaya gzip ile yazilir
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet(producer.getName());
+            int rowId = 0;
+
+            startRow(sheet, rowId++);
+            for (String header : producer.getHeaders()) {
+                cell(header);
+            }
+
+            while (items.hasNext()) {
+                T item = items.next();
+                startRow(sheet, rowId++);
+                producer.produce(item, this);
+            }
+            workbook.write(out);
+            out.flush();
+        } finally {
+            //gecici dosyalari sil
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void startRow(Sheet sheet, int rowId) {
+        row = sheet.createRow(rowId);
+        column = 0;
+    }
+
+    @Override
+    public void cell(long value) {
+        row.createCell(column++).setCellValue(value);
+    }
+
+    @Override
+    public void cell(double value) {
+        row.createCell(column++).setCellValue(value);
+    }
+
+    @Override
+    public void cell(String value) {
+        row.createCell(column++).setCellValue(value);
+    }
+}
@@ -4,18 +4,12 @@ import com.example.rentacar.domain.Car;
 import com.example.rentacar.domain.Reservation;
 import com.example.rentacar.domain.Role;
 import com.example.rentacar.domain.User;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.List;
+
 import java.util.StringJoiner;
 
+/**
+ * Columns of the user, car and reservation reports, shared by every {@link ReportFormat}.
+ */
 public class ExcellReporter {
 
     static String SHEET_USER = "Users";
@@ -32,107 +26,85 @@ public class ExcellReporter {
             "CustomerFullName", "CustomerPhoneNumber", "PickUpTime", "DropOffTime",
             "PickUpLocation", "DropOffLocation", "Status"};
 
-    public static ByteArrayInputStream getUserExcelReport(List<User> users) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        Sheet sheet = workbook.createSheet(SHEET_USER);
-        Row headerRow = sheet.createRow(0);
-
-        for (int i = 0; i < USER_HEADERS.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(USER_HEADERS[i]);
+    public static final ReportRowProducer<User> USER_ROWS = new ReportRowProducer<User>() {
+        @Override
+        public String getName() {
+            return SHEET_USER;
         }
 
-        int rowId=1;
-
-        for (User user:users){
-            Row row=sheet.createRow(rowId++);
+        @Override
+        public String[] getHeaders() {
+            return USER_HEADERS;
+        }
 
-            row.createCell(0).setCellValue(user.getId());
-            row.createCell(1).setCellValue(user.getFirstName());
-            row.createCell(2).setCellValue(user.getLastName());
-            row.createCell(3).setCellValue(user.getPhoneNumber());
-            row.createCell(4).setCellValue(user.getEmail());
-            row.createCell(5).setCellValue(user.getAddress());
-            row.createCell(6).setCellValue(user.getZipCode());
+        @Override
+        public void produce(User user, RowSink row) {
+            row.cell(user.getId());
+            row.cell(user.getFirstName());
+            row.cell(user.getLastName());
+            row.cell(user.getPhoneNumber());
+            row.cell(user.getEmail());
+            row.cell(user.getAddress());
+            row.cell(user.getZipCode());
 
             StringJoiner sj=new StringJoiner(",");
             for (Role role:user.getRoles()){
                 sj.add(role.getType().getName());
             }
-            row.createCell(7).setCellValue(sj.toString());
-
-        }
-        workbook.write(out);
-        workbook.close();
-
-        return new ByteArrayInputStream(out.toByteArray());
-    }
-    public static ByteArrayInputStream getCarExcelReport(List<Car> cars) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        Sheet sheet = workbook.createSheet(SHEET_CAR);
-        Row headerRow = sheet.createRow(0);
-
-        for (int i = 0; i < CAR_HEADERS.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(CAR_HEADERS[i]);
+            row.cell(sj.toString());
         }
+    };
 
-        int rowId=1;
-
-        for (Car car:cars){
-            Row row=sheet.createRow(rowId++);
-
-            row.createCell(0).setCellValue(car.getId());
-            row.createCell(1).setCellValue(car.getModel());
-            row.createCell(2).setCellValue(car.getDoors());
-            row.createCell(3).setCellValue(car.getSeats());
-            row.createCell(4).setCellValue(car.getLuggage());
-            row.createCell(5).setCellValue(car.getTransmission());
-            row.createCell(6).setCellValue(car.getAirConditioning()?"+":"-");
-            row.createCell(7).setCellValue(car.getAge());
-            row.createCell(8).setCellValue(car.getPricePerHour());
-            row.createCell(9).setCellValue(car.getFuelType());
-
-        }
-        workbook.write(out);
-        workbook.close();
-
-        return new ByteArrayInputStream(out.toByteArray());
-    }
-    public static ByteArrayInputStream getReservationExcelReport(List<Reservation> reservations) throws IOException {
-        Workbook workbook = new XSSFWorkbook();
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        Sheet sheet = workbook.createSheet(SHEET_RESERVATION);
-        Row headerRow = sheet.createRow(0);
-
-        for (int i = 0; i < RESERVATION_HEADERS.length; i++) {
-            Cell cell = headerRow.createCell(i);
-            cell.setCellValue(RESERVATION_HEADERS[i]);
+    public static final ReportRowProducer<Car> CAR_ROWS = new ReportRowProducer<Car>() {
+        @Override
+        public String getName() {
+            return SHEET_CAR;
         }
 
-        int rowId=1;
+        @Override
+        public String[] getHeaders() {
+            return CAR_HEADERS;
+        }
 
-        for (Reservation reservation:reservations){
-            Row row=sheet.createRow(rowId++);
+        @Override
+        public void produce(Car car, RowSink row) {
+            row.cell(car.getId());
+            row.cell(car.getModel());
+            row.cell(car.getDoors());
+            row.cell(car.getSeats());
+            row.cell(car.getLuggage());
+            row.cell(car.getTransmission());
+            row.cell(car.getAirConditioning()?"+":"-");
+            row.cell(car.getAge());
+            row.cell(car.getPricePerHour());
+            row.cell(car.getFuelType());
+        }
+    };
 
-            row.createCell(0).setCellValue(reservation.getId());
-            row.createCell(1).setCellValue(reservation.getCar().getId());
-            row.createCell(2).setCellValue(reservation.getCar().getModel());
-            row.createCell(3).setCellValue(reservation.getUser().getId());
-            row.createCell(4).setCellValue(reservation.getUser().getFirstName()+" "+reservation.getUser().getLastName());
-            row.createCell(5).setCellValue(reservation.getUser().getPhoneNumber());
-            row.createCell(6).setCellValue(reservation.getPickUpTime().toString());
-            row.createCell(7).setCellValue(reservation.getDropOffTime().toString());
-            row.createCell(8).setCellValue(reservation.getPickUpLocation().toString());
-            row.createCell(9).setCellValue(reservation.getDropOffLocation().toString());
-            row.createCell(10).setCellValue(reservation.getStatus().toString());
+    public static final ReportRowProducer<Reservation> RESERVATION_ROWS = new ReportRowProducer<Reservation>() {
+        @Override
+        public String getName() {
+            return SHEET_RESERVATION;
+        }
 
+        @Override
+        public String[] getHeaders() {
+            return RESERVATION_HEADERS;
         }
-        workbook.write(out);
-        workbook.close();
 
-        return new ByteArrayInputStream(out.toByteArray());
-    }
+        @Override
+        public void produce(Reservation reservation, RowSink row) {
+            row.cell(reservation.getId());
+            row.cell(reservation.getCar().getId());
+            row.cell(reservation.getCar().getModel());
+            row.cell(reservation.getUser().getId());
+            row.cell(reservation.getUser().getFirstName()+" "+reservation.getUser().getLastName());
+            row.cell(reservation.getUser().getPhoneNumber());
+            row.cell(reservation.getPickUpTime().toString());
+            row.cell(reservation.getDropOffTime().toString());
+            row.cell(reservation.getPickUpLocation());
+            row.cell(reservation.getDropOffLocation());
+            row.cell(reservation.getStatus().toString());
+        }
+    };
 }
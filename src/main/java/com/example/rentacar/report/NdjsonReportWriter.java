@@ -0,0 +1,110 @@
+package com.example.rentacar.report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Writes a report as newline delimited JSON: one object per row, keyed by the column headers.
+ * Every row is built in one reused buffer and copied to a buffered writer.
+ */
+public class NdjsonReportWriter implements ReportWriter, RowSink {
+
+    private final StringBuilder line = new StringBuilder(512);
+
+    private String[] keys;
+
+    private int column;
+
+    @Override
+    public <T> void write(ReportRowProducer<T> producer, Iterator<T> items, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        //anahtarlar bir kez escape edilir, her satirda tekrar kullanilir
+        String[] headers = producer.getHeaders();
+        keys = new String[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            line.setLength(0);
+            appendString(headers[i]);
+            keys[i] = line.append(':').toString();
+        }
+        line.setLength(0);
+
+        while (items.hasNext()) {
+            line.append('{');
+            column = 0;
+            producer.produce(items.next(), this);
+            line.append('}').append('\n');
+            writer.append(line);
+            line.setLength(0);
+        }
+        writer.flush();
+    }
+
+    private void key() {
+        if (column > 0) {
+            line.append(',');
+        }
+        line.append(keys[column++]);
+    }
+
+    @Override
+    public void cell(long value) {
+        key();
+        line.append(value);
+    }
+
+    @Override
+    public void cell(double value) {
+        key();
+        if (Double.isFinite(value)) {
+            line.append(value);
+        } else {
+            line.append("null");
+        }
+    }
+
+    @Override
+    public void cell(String value) {
+        key();
+        if (value == null) {
+            line.append("null");
+        } else {
+            appendString(value);
+        }
+    }
+
+    private void appendString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.rentacar.report;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters of the data behind each report, bumped by the services after every write.
+ * A generated report is valid as long as the version it was generated for is still current.
+ * The counters only see the writes of their own node and restart with the application.
+ */
+@Component
+public class ReportDataVersion {
+
+    private final Map<ReportType, AtomicLong> versions = new EnumMap<>(ReportType.class);
+
+    public ReportDataVersion() {
+        for (ReportType type : ReportType.values()) {
+            versions.put(type, new AtomicLong());
+        }
+    }
+
+    /**
+     * Records a change of the data of a report. Inside a transaction the counter moves after the commit,
+     * so a report read before the commit is never stored under the new version.
+     *
+     * @param table The report whose rows were written.
+     */
+    public void changed(ReportType table) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            versions.get(table).incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versions.get(table).incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Retrieves the current version of the data of a report.
+     *
+     * @param type The report.
+     * @return A version string that changes whenever any table read by the report changes.
+     */
+    public String versionOf(ReportType type) {
+        //rezervasyon raporu arac modeli ve kullanici adlarini da icerir
+        if (type == ReportType.RESERVATIONS) {
+            return versions.get(ReportType.RESERVATIONS).get() + "-" + versions.get(ReportType.CARS).get()
+                    + "-" + versions.get(ReportType.USERS).get();
+        }
+        return String.valueOf(versions.get(type).get());
+    }
+}
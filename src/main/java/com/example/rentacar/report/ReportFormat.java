@@ -0,0 +1,69 @@
+package com.example.rentacar.report;
+
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+
+public enum ReportFormat {
+
+    //xlsx zaten zip oldugu icin tekrar gzip edilmez
+    XLSX("xlsx", "application/vmd.ms-excel", false),
+    CSV("csv", "text/csv;charset=UTF-8", true),
+    NDJSON("ndjson", "application/x-ndjson", true);
+
+    private final String extension;
+
+    private final String contentType;
+
+    private final boolean compressible;
+
+    ReportFormat(String extension, String contentType, boolean compressible) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.compressible = compressible;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public boolean isCompressible() {
+        return compressible;
+    }
+
+    /**
+     * Creates a writer for this format.
+     *
+     * @param rowWindow The number of rows an Excel workbook keeps in memory, ignored by the text formats.
+     * @return A new report writer.
+     */
+    public ReportWriter newWriter(int rowWindow) {
+        switch (this) {
+            case CSV:
+                return new CsvReportWriter();
+            case NDJSON:
+                return new NdjsonReportWriter();
+            default:
+                return new ExcelReportWriter(rowWindow);
+        }
+    }
+
+    /**
+     * Resolves a format from its extension, e.g. a request parameter.
+     *
+     * @param value The extension, case insensitive.
+     * @return The report format.
+     * @throws BadRequestException Thrown if the format is not supported.
+     */
+    public static ReportFormat of(String value) {
+        for (ReportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BadRequestException(String.format(ErrorMessage.REPORT_FORMAT_INCORRECT_MESSAGE, value));
+    }
+}
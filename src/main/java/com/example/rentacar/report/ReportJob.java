@@ -0,0 +1,59 @@
+package com.example.rentacar.report;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * State of one report generation. Fields are written by the report thread and read by polling requests,
+ * hence volatile.
+ */
+@Getter
+public class ReportJob {
+
+    private final String id;
+
+    private final ReportType type;
+
+    private final ReportFormat format;
+
+    //data version the report is generated for
+    private final String version;
+
+    private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+
+    private volatile String message;
+
+    private volatile Path file;
+
+    //System.currentTimeMillis() of the last status change, used to expire finished jobs
+    private volatile long updatedAt = System.currentTimeMillis();
+
+    public ReportJob(String id, ReportType type, ReportFormat format, String version) {
+        this.id = id;
+        this.type = type;
+        this.format = format;
+        this.version = version;
+    }
+
+    public void running() {
+        status = ReportJobStatus.RUNNING;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    public void done(Path file) {
+        this.file = file;
+        status = ReportJobStatus.DONE;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    public void failed(String message) {
+        this.message = message;
+        status = ReportJobStatus.FAILED;
+        updatedAt = System.currentTimeMillis();
+    }
+
+    public boolean isFinished() {
+        return status == ReportJobStatus.DONE || status == ReportJobStatus.FAILED;
+    }
+}
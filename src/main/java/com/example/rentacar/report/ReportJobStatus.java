@@ -0,0 +1,8 @@
+package com.example.rentacar.report;
+
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
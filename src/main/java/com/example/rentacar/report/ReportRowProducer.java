@@ -0,0 +1,22 @@
+package com.example.rentacar.report;
+
+/**
+ * Describes one report: its name, column headers and how an item is turned into the cells of a row.
+ * The same producer feeds every {@link ReportFormat}.
+ *
+ * @param <T> The type of the reported items.
+ */
+public interface ReportRowProducer<T> {
+
+    String getName();
+
+    String[] getHeaders();
+
+    /**
+     * Emits the cells of the item, one per header and in header order.
+     *
+     * @param item The reported item.
+     * @param sink The receiver of the cells.
+     */
+    void produce(T item, RowSink sink);
+}
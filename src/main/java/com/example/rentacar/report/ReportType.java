@@ -0,0 +1,37 @@
+package com.example.rentacar.report;
+
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+
+public enum ReportType {
+
+    USERS("users"),
+    CARS("cars"),
+    RESERVATIONS("reservations");
+
+    private final String fileName;
+
+    ReportType(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Resolves a report type from its file name, e.g. a request parameter.
+     *
+     * @param value The file name of the report, case insensitive.
+     * @return The report type.
+     * @throws BadRequestException Thrown if there is no such report.
+     */
+    public static ReportType of(String value) {
+        for (ReportType type : values()) {
+            if (type.fileName.equalsIgnoreCase(value)) {
+                return type;
+            }
+        }
+        throw new BadRequestException(String.format(ErrorMessage.REPORT_TYPE_INCORRECT_MESSAGE, value));
+    }
+}
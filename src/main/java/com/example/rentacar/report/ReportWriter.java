@@ -0,0 +1,21 @@
+package com.example.rentacar.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes report rows to a stream in one {@link ReportFormat}, consuming the rows one at a time.
+ */
+public interface ReportWriter {
+
+    /**
+     * Writes the header and one row per item. The stream is flushed but not closed.
+     *
+     * @param producer The report description.
+     * @param items    The reported items.
+     * @param out      The stream the report is written to.
+     * @throws IOException Thrown if the report can't be written.
+     */
+    <T> void write(ReportRowProducer<T> producer, Iterator<T> items, OutputStream out) throws IOException;
+}
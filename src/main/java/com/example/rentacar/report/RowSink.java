@@ -0,0 +1,14 @@
+package com.example.rentacar.report;
+
+/**
+ * Receives the cells of one report row, in column order, from a {@link ReportRowProducer}.
+ * Writers implement it directly on their output, so no row object is built in between.
+ */
+public interface RowSink {
+
+    void cell(long value);
+
+    void cell(double value);
+
+    void cell(String value);
+}
@@ -1,16 +1,21 @@
 package com.example.rentacar.repository;
 
 import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.enums.ReservationStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
@@ -30,6 +35,16 @@ public interface CarRepository extends JpaRepository<Car, Long> {
     @Query("select c from Car c join c.image im where im.id=:id")
     List<Car>findCarsByImageId(@Param("id")String id);
 
-    @EntityGraph(attributePaths = {"id"})
-    List<Car> getAllBy();
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("select c from Car c order by c.id")
+    Stream<Car> streamAllBy();
+
+    //tek sorguda, verilen aralikta aktif rezervasyonu olmayan tum araclar (anti-join)
+    @EntityGraph(attributePaths = "image")
+    @Query("select distinct c from Car c where not exists (select r.id from Reservation r where r.car=c " +
+            "and r.status not in :status and r.pickUpTime<=:dropOffTime and r.dropOffTime>=:pickUpTime)")
+    List<Car> findAvailableCars(@Param("pickUpTime") LocalDateTime pickUpTime,
+                                @Param("dropOffTime") LocalDateTime dropOffTime,
+                                @Param("status") ReservationStatus[] status);
 }
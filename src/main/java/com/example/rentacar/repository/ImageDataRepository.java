@@ -0,0 +1,9 @@
+package com.example.rentacar.repository;
+
+import com.example.rentacar.domain.ImageData;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageDataRepository extends JpaRepository<ImageData,Long> {
+}
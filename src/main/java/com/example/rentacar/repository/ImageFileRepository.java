@@ -1,12 +1,21 @@
 package com.example.rentacar.repository;
 
 import com.example.rentacar.domain.ImageFile;
+import com.example.rentacar.dto.ImageExportEntry;
+import com.example.rentacar.dto.ImageFileMetadata;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ImageFileRepository extends JpaRepository<ImageFile,String> {
@@ -16,4 +25,26 @@ public interface ImageFileRepository extends JpaRepository<ImageFile,String> {
 
     @EntityGraph(attributePaths = "id")
     Optional<ImageFile> findImageById(String id);
+
+    //t_imagefile sutunlari disinda hicbir tabloya dokunmayan, sadece metadata okuyan sorgu
+    @Query("select new com.example.rentacar.dto.ImageFileMetadata(f.id, f.name, f.type, f.length) from ImageFile f")
+    List<ImageFileMetadata> findAllMetadata();
+
+    //export icin id sirasinda cursor, satirlar fetchSize kadar parcalar halinde okunur
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("select new com.example.rentacar.dto.ImageExportEntry(f.id, f.name, f.type, f.hash, d.id, f.createDate) " +
+            "from ImageFile f left join f.imageData d order by f.id")
+    Stream<ImageExportEntry> streamExportEntries();
+
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("select new com.example.rentacar.dto.ImageExportEntry(f.id, f.name, f.type, f.hash, d.id, f.createDate) " +
+            "from ImageFile f left join f.imageData d where f.createDate>=:since order by f.id")
+    Stream<ImageExportEntry> streamExportEntriesSince(@Param("since") LocalDateTime since);
+
+    long countByHash(String hash);
+
+    long countByHashIsNullAndImageDataIsNotNull();
+
+    @Query("select f.id from ImageFile f where f.hash is null and f.imageData is not null and f.id>:lastId order by f.id")
+    List<String> findLegacyImageIds(@Param("lastId") String lastId, Pageable pageable);
 }
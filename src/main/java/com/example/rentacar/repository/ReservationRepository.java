@@ -1,5 +1,6 @@
 package com.example.rentacar.repository;
 
+import com.example.rentacar.availability.ReservationPeriod;
 import com.example.rentacar.domain.Car;
 import com.example.rentacar.domain.Reservation;
 import com.example.rentacar.domain.User;
@@ -8,27 +9,55 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
 
 
-    @Query("select r from Reservation r " +
-            "join fetch Car c on r.car=c.id where " +
-            "c.id=:carId and (r.status not in :status)and :pickUpTime between r.pickUpTime and r.dropOffTime  " +
-            "or " +
-            "c.id=:carId and (r.status not in :status)and :dropOffTime between r.pickUpTime and r.dropOffTime " +
-            "or " +
-            "c.id=:carId and (r.status not in :status)and(r.pickUpTime between :pickUpTime and:dropOffTime)")
+    //period && tsrange : t_reservation.period uzerindeki GiST index ile tek bir probe
+    @Query(value = "select r.* from t_reservation r where r.car_id=:carId " +
+            "and r.status not in ('CANCELED','DONE') " +
+            "and r.period && tsrange(cast(:pickUpTime as timestamp), cast(:dropOffTime as timestamp), '[]')",
+            nativeQuery = true)
     List<Reservation> checkCarStatus(@Param("carId") Long carId,
                                      @Param("pickUpTime") LocalDateTime pickUpTime,
-                                     @Param("dropOffTime") LocalDateTime dropOffTime,
-                                     @Param("status") ReservationStatus[] status);
+                                     @Param("dropOffTime") LocalDateTime dropOffTime);
+
+    @Query("select new com.example.rentacar.availability.ReservationPeriod(r.id, r.car.id, r.pickUpTime, r.dropOffTime) " +
+            "from Reservation r where r.status not in :status")
+    List<ReservationPeriod> findActivePeriods(@Param("status") ReservationStatus[] status);
+
+    @Query("select new com.example.rentacar.availability.ReservationPeriod(r.id, r.car.id, r.pickUpTime, r.dropOffTime) " +
+            "from Reservation r where r.car.id=:carId and r.status not in :status " +
+            "and r.pickUpTime<:to and r.dropOffTime>:from")
+    List<ReservationPeriod> findActivePeriodsByCar(@Param("carId") Long carId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to,
+                                                   @Param("status") ReservationStatus[] status);
+
+    @Query("select new com.example.rentacar.availability.ReservationPeriod(r.id, r.car.id, r.pickUpTime, r.dropOffTime) " +
+            "from Reservation r where r.car.id=:carId and r.status not in :status")
+    List<ReservationPeriod> findAllActivePeriodsByCar(@Param("carId") Long carId,
+                                                      @Param("status") ReservationStatus[] status);
+
+    @Query("select new com.example.rentacar.availability.ReservationPeriod(r.id, r.car.id, r.pickUpTime, r.dropOffTime) " +
+            "from Reservation r where r.car.id in :carIds and r.status not in :status " +
+            "and r.pickUpTime<=:to and r.dropOffTime>=:from")
+    List<ReservationPeriod> findActivePeriodsByCars(@Param("carIds") Collection<Long> carIds,
+                                                    @Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to,
+                                                    @Param("status") ReservationStatus[] status);
 
     //sadece carları getirir ve carların imagelerini de getirir ama image data gelmez
     @EntityGraph(attributePaths = {"car", "car.image"})
@@ -40,6 +69,11 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     @EntityGraph(attributePaths = {"car", "car.image", "user"})
     Optional<Reservation> findById(Long id);
 
+    //satir kilidi: yasam dongusu isi bu satiri atlar, once o kilitlediyse guncelleme DONE durumunu gorur
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Reservation r where r.id=:id")
+    Optional<Reservation> findByIdForUpdate(@Param("id") Long id);
+
     @EntityGraph(attributePaths = {"car", "car.image", "user"})
     Page<Reservation> findAllByUser(User user, Pageable pageable);
 
@@ -50,7 +84,10 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
 
     boolean existsByUser(User user);
 
-    @EntityGraph(attributePaths = {"car","user"})
-    List<Reservation> findAllBy();
+    //rapor icin cursor: araba ve kullanici ayni satirda gelir, entityler read-only yuklenir
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("select r from Reservation r join fetch r.car join fetch r.user order by r.id")
+    Stream<Reservation> streamAllBy();
 }
 
@@ -7,10 +7,13 @@ import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User,Long> {
 
@@ -26,6 +29,12 @@ public interface UserRepository extends JpaRepository<User,Long> {
     @EntityGraph(attributePaths = "roles")
     Page<User>findAll(Pageable pageable);
 
+    //roller ayni satirlarda gelir, kullanici basina ayri sorgu yok; id sirasi ayni kullanicinin satirlarini yan yana tutar
+    @QueryHints({@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true")})
+    @Query("select u from User u left join fetch u.roles order by u.id")
+    Stream<User> streamAllBy();
+
     @EntityGraph(attributePaths = "roles")
     Optional<User>findById(Long id);
 
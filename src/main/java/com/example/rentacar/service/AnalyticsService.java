@@ -0,0 +1,184 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.dto.RevenueAnalyticsDTO;
+import com.example.rentacar.dto.UtilizationAnalyticsDTO;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.report.AnalyticsGroup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Revenue and utilization figures computed by PostgreSQL, so only one row per group leaves the database.
+ * A reservation counts for the part of it that falls inside the requested range (or month): its total price
+ * is prorated by that overlap and its reserved hours are the hours of that overlap. Canceled reservations
+ * are ignored. The overlap is computed on the {@code period} column of t_reservation and the reservations are
+ * found through the partial GiST index ix_reservation_billable_period.
+ */
+@Service
+public class AnalyticsService {
+
+    //seconds of the reservation inside the bucket
+    private static final String OVERLAP_SECONDS =
+            "extract(epoch from upper(r.period * %1$s) - lower(r.period * %1$s))";
+
+    //total price prorated by the share of the reservation inside the bucket
+    private static final String PRORATED_PRICE = "r.total_price * " + OVERLAP_SECONDS +
+            " / greatest(extract(epoch from r.drop_off_time - r.pick_up_time), 1)";
+
+    private static final String BILLABLE_RESERVATION = "r.status <> 'CANCELED' and r.period && %s";
+
+    private static final String RANGE_SQL = "with w as (select tsrange(?::timestamp, ?::timestamp, '[)') as bounds) ";
+
+    //months clipped to the range, the first and last ones may be partial
+    private static final String MONTHS_SQL = "with w as (select ?::timestamp as from_time, ?::timestamp as to_time), " +
+            "buckets as (select m as month_start, " +
+            "tsrange(greatest(m, w.from_time), least(m + interval '1 month', w.to_time), '[)') as bounds " +
+            "from w, generate_series(date_trunc('month', w.from_time), w.to_time - interval '1 microsecond', " +
+            "interval '1 month') m) ";
+
+    private static final String REVENUE_SQL = RANGE_SQL +
+            "select g.*, rank() over (order by g.revenue desc) as revenue_rank, " +
+            "coalesce(g.revenue / nullif(sum(g.revenue) over (), 0), 0) as revenue_share, " +
+            "null::float8 as cumulative_revenue " +
+            "from (select %s, count(r.id) as reservations, " +
+            "sum(" + String.format(PRORATED_PRICE, "w.bounds") + ") as revenue " +
+            "from t_reservation r join t_car c on c.id = r.car_id cross join w " +
+            "where " + String.format(BILLABLE_RESERVATION, "w.bounds") + " " +
+            "group by %s) g " +
+            "order by revenue_rank, g.model, g.car_id";
+
+    private static final String MONTHLY_REVENUE_SQL = MONTHS_SQL +
+            "select g.*, null::int as revenue_rank, " +
+            "coalesce(g.revenue / nullif(sum(g.revenue) over (), 0), 0) as revenue_share, " +
+            "sum(g.revenue) over (order by g.month_start) as cumulative_revenue " +
+            "from (select null::bigint as car_id, null::varchar as model, b.month_start, " +
+            "count(r.id) as reservations, " +
+            "coalesce(sum(" + String.format(PRORATED_PRICE, "b.bounds") + "), 0) as revenue " +
+            "from buckets b left join t_reservation r on " + String.format(BILLABLE_RESERVATION, "b.bounds") + " " +
+            "group by b.month_start) g " +
+            "order by g.month_start";
+
+    private static final String UTILIZATION_SQL = RANGE_SQL +
+            "select g.*, g.reserved_hours / nullif(g.available_hours, 0) as utilization, " +
+            "rank() over (order by g.reserved_hours / nullif(g.available_hours, 0) desc nulls last) as utilization_rank, " +
+            "null::float8 as utilization_change " +
+            "from (select %s, count(distinct c.id) as cars, " +
+            "coalesce(sum(" + String.format(OVERLAP_SECONDS, "w.bounds") + "), 0) / 3600 as reserved_hours, " +
+            "count(distinct c.id) * extract(epoch from upper(w.bounds) - lower(w.bounds)) / 3600 as available_hours " +
+            "from t_car c cross join w " +
+            "left join t_reservation r on r.car_id = c.id and " + String.format(BILLABLE_RESERVATION, "w.bounds") + " " +
+            "group by %s, w.bounds) g " +
+            "order by utilization_rank, g.model, g.car_id";
+
+    //the fleet is the current one, t_car does not record when a car joined it
+    private static final String MONTHLY_UTILIZATION_SQL = MONTHS_SQL +
+            ", fleet as (select count(*) as cars from t_car) " +
+            "select g.*, g.reserved_hours / nullif(g.available_hours, 0) as utilization, null::int as utilization_rank, " +
+            "g.reserved_hours / nullif(g.available_hours, 0) - " +
+            "lag(g.reserved_hours / nullif(g.available_hours, 0)) over (order by g.month_start) as utilization_change " +
+            "from (select null::bigint as car_id, null::varchar as model, b.month_start, f.cars, " +
+            "coalesce(sum(" + String.format(OVERLAP_SECONDS, "b.bounds") + "), 0) / 3600 as reserved_hours, " +
+            "f.cars * extract(epoch from upper(b.bounds) - lower(b.bounds)) / 3600 as available_hours " +
+            "from buckets b cross join fleet f " +
+            "left join t_reservation r on " + String.format(BILLABLE_RESERVATION, "b.bounds") + " " +
+            "group by b.month_start, b.bounds, f.cars) g " +
+            "order by g.month_start";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${rentacar.analytics.maxDays:1830}")
+    private int maxDays;
+
+    /**
+     * Computes the revenue of the reservations overlapping the provided date range.
+     *
+     * @param group The grouping: per car, per model or per month.
+     * @param from  The first day of the range (inclusive).
+     * @param to    The last day of the range (inclusive).
+     * @return One row per group: cars and models ordered by revenue, months in calendar order.
+     * @throws BadRequestException Thrown if the date range is not valid.
+     */
+    public List<RevenueAnalyticsDTO> getRevenue(AnalyticsGroup group, LocalDate from, LocalDate to) {
+        Object[] range = range(from, to);
+        String sql = group == AnalyticsGroup.MONTH ? MONTHLY_REVENUE_SQL :
+                String.format(REVENUE_SQL, group.getSelectColumns(), group.getGroupColumns());
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new RevenueAnalyticsDTO(
+                getLong(rs, "car_id"),
+                rs.getString("model"),
+                getMonth(rs),
+                rs.getLong("reservations"),
+                rs.getDouble("revenue"),
+                rs.getDouble("revenue_share"),
+                getInteger(rs, "revenue_rank"),
+                getDouble(rs, "cumulative_revenue")), range);
+    }
+
+    /**
+     * Computes the share of the available car hours covered by reservations in the provided date range.
+     * Cars without any reservation are part of the result with a utilization of 0.
+     *
+     * @param group The grouping: per car, per model or per month.
+     * @param from  The first day of the range (inclusive).
+     * @param to    The last day of the range (inclusive).
+     * @return One row per group: cars and models ordered by utilization, months in calendar order.
+     * @throws BadRequestException Thrown if the date range is not valid.
+     */
+    public List<UtilizationAnalyticsDTO> getUtilization(AnalyticsGroup group, LocalDate from, LocalDate to) {
+        Object[] range = range(from, to);
+        String sql = group == AnalyticsGroup.MONTH ? MONTHLY_UTILIZATION_SQL :
+                String.format(UTILIZATION_SQL, group.getSelectColumns(), group.getGroupColumns());
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new UtilizationAnalyticsDTO(
+                getLong(rs, "car_id"),
+                rs.getString("model"),
+                getMonth(rs),
+                rs.getLong("cars"),
+                rs.getDouble("reserved_hours"),
+                rs.getDouble("available_hours"),
+                rs.getDouble("utilization"),
+                getInteger(rs, "utilization_rank"),
+                getDouble(rs, "utilization_change")), range);
+    }
+
+    /**
+     * Converts the inclusive day range to the half-open timestamp range [from 00:00, to + 1 day 00:00).
+     */
+    private Object[] range(LocalDate from, LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new BadRequestException(String.format(ErrorMessage.ANALYTICS_RANGE_INCORRECT_MESSAGE, maxDays));
+        }
+        return new Object[]{Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay())};
+    }
+
+    private static LocalDate getMonth(ResultSet rs) throws SQLException {
+        Timestamp month = rs.getTimestamp("month_start");
+        return month == null ? null : month.toLocalDateTime().toLocalDate();
+    }
+
+    private static Long getLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Integer getInteger(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
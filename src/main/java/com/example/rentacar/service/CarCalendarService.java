@@ -0,0 +1,168 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.availability.CarTimeline;
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.availability.ReservationPeriod;
+import com.example.rentacar.dto.CarCalendarDTO;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.ResourceNotFoundException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.repository.CarRepository;
+import com.example.rentacar.repository.ReservationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class CarCalendarService {
+
+    private static final int SLOT_MINUTES = 60;
+
+    private static final long SLOT_SECONDS = SLOT_MINUTES * 60L;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Value("${rentacar.calendar.maxDays:366}")
+    private int maxDays;
+
+    @Value("${rentacar.calendar.maxCachedRangesPerCar:32}")
+    private int maxCachedRangesPerCar;
+
+    @Value("${rentacar.calendar.maxCachedCars:10000}")
+    private long maxCachedCars;
+
+    //the cache only sees the writes of its own node, like the availability index
+    @Value("${rentacar.reservation.distributedLock:false}")
+    private boolean distributedLock;
+
+    //carId -> (from/to -> calendar), a car's entry is dropped whenever one of its reservations changes
+    private Cache<Long, Map<String, CarCalendarDTO>> cache;
+
+    @PostConstruct
+    public void initCache() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxCachedCars)
+                .build();
+    }
+
+    /**
+     * Retrieves the hourly occupancy bitmap of a car for the provided date range.
+     * Results are cached per car until one of the car's reservations changes. The cache is not used when
+     * reservations are serialized across several nodes, since writes on other nodes would not evict it.
+     *
+     * @param carId The identifier of the car.
+     * @param from  The first day of the calendar (inclusive).
+     * @param to    The last day of the calendar (inclusive).
+     * @return CarCalendarDTO containing the occupancy bitmap.
+     * @throws BadRequestException       Thrown if the date range is not valid.
+     * @throws ResourceNotFoundException Thrown if the specified car is not found.
+     */
+    public CarCalendarDTO getCalendar(Long carId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new BadRequestException(String.format(ErrorMessage.CALENDAR_RANGE_INCORRECT_MESSAGE, maxDays));
+        }
+        String key = from + "/" + to;
+        if (!distributedLock) {
+            Map<String, CarCalendarDTO> carCache = cache.getIfPresent(carId);
+            CarCalendarDTO calendar = carCache == null ? null : carCache.get(key);
+            if (calendar != null) {
+                return calendar;
+            }
+        }
+        //unknown ids never get a cache entry
+        if (!carRepository.existsById(carId)) {
+            throw new ResourceNotFoundException(String.format(ErrorMessage.RESOURCE_NOT_FOUND_MESSAGE, carId));
+        }
+        if (distributedLock) {
+            return buildCalendar(carId, from, to);
+        }
+        //the car's map is taken before the data is read, so an eviction during the computation
+        //leaves the result in a detached map instead of caching a stale calendar
+        Map<String, CarCalendarDTO> carCache = cache.get(carId, id -> new ConcurrentHashMap<>());
+        CarCalendarDTO calendar = buildCalendar(carId, from, to);
+        if (carCache.size() >= maxCachedRangesPerCar) {
+            carCache.clear();
+        }
+        carCache.put(key, calendar);
+        return calendar;
+    }
+
+    /**
+     * Drops the cached calendars of a car. Must be called after the car's reservations have changed.
+     *
+     * @param carId The identifier of the car.
+     */
+    public void evict(Long carId) {
+        if (carId != null) {
+            cache.invalidate(carId);
+        }
+    }
+
+    /**
+     * Drops the cached calendars of every car.
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    private CarCalendarDTO buildCalendar(Long carId, LocalDate from, LocalDate to) {
+        LocalDateTime windowStart = from.atStartOfDay();
+        LocalDateTime windowEnd = to.plusDays(1).atStartOfDay();
+
+        long start = ReservationAvailabilityIndex.toEpochSecond(windowStart);
+        int slotCount = (int) ((ReservationAvailabilityIndex.toEpochSecond(windowEnd) - start) / SLOT_SECONDS);
+        long[] bits = new long[(slotCount + 63) >>> 6];
+
+        if (availabilityIndex.isReady()) {
+            CarTimeline timeline = availabilityIndex.getTimeline(carId);
+            for (int i = 0; i < timeline.size(); i++) {
+                markSlots(bits, slotCount, start, timeline.startAt(i), timeline.endAt(i));
+            }
+        } else {
+            List<ReservationPeriod> periods = reservationRepository.findActivePeriodsByCar(carId, windowStart, windowEnd,
+                    ReservationAvailabilityIndex.INACTIVE_STATUSES);
+            for (ReservationPeriod period : periods) {
+                markSlots(bits, slotCount, start, ReservationAvailabilityIndex.toEpochSecond(period.getPickUpTime()),
+                        ReservationAvailabilityIndex.toEpochSecond(period.getDropOffTime()));
+            }
+        }
+        return new CarCalendarDTO(carId, from, to, SLOT_MINUTES, slotCount, encode(bits));
+    }
+
+    /**
+     * Sets the bits of every slot that the period [periodStart, periodEnd) covers at least partially.
+     */
+    private static void markSlots(long[] bits, int slotCount, long windowStart, long periodStart, long periodEnd) {
+        long first = Math.max(0, Math.floorDiv(periodStart - windowStart, SLOT_SECONDS));
+        long last = Math.min(slotCount - 1L, Math.floorDiv(periodEnd - windowStart + SLOT_SECONDS - 1, SLOT_SECONDS) - 1);
+        for (int slot = (int) Math.min(first, slotCount); slot <= last; slot++) {
+            bits[slot >>> 6] |= 1L << (slot & 63);
+        }
+    }
+
+    private static String encode(long[] bits) {
+        ByteBuffer buffer = ByteBuffer.allocate(bits.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asLongBuffer().put(bits);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+}
@@ -1,23 +1,32 @@
 package com.example.rentacar.service;
 
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
 import com.example.rentacar.domain.Car;
 import com.example.rentacar.domain.ImageFile;
+import com.example.rentacar.dto.AvailableCarDTO;
 import com.example.rentacar.dto.CarDTO;
 import com.example.rentacar.exception.BadRequestException;
 import com.example.rentacar.exception.ConflictException;
 import com.example.rentacar.exception.ResourceNotFoundException;
 import com.example.rentacar.exception.message.ErrorMessage;
 import com.example.rentacar.mapper.CarMapper;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.report.ReportType;
 import com.example.rentacar.repository.CarRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CarService {
@@ -31,9 +40,21 @@ public class CarService {
     @Autowired
     private CarMapper carMapper;
 
+    @Autowired
+    private ReportDataVersion reportDataVersion;
+
+    @Autowired
+    private CarCalendarService carCalendarService;
+
     @Autowired
     ReservationService reservationService;
 
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Saves a new car with the provided information and associates it with the specified image.
      *
@@ -58,6 +79,7 @@ public class CarService {
         car.setImage(imFiles);
 
         carRepository.save(car);
+        reportDataVersion.changed(ReportType.CARS);
 
     }
 
@@ -157,11 +179,46 @@ public class CarService {
         car.getImage().add(imageFile);
 
         carRepository.save(car);
+        reportDataVersion.changed(ReportType.CARS);
 
     }
 
+    /**
+     * Uploads several images and attaches all of them to a car in one step.
+     * The images are attached in a single transaction; if that fails, the uploaded images are removed again,
+     * so the car gets either all of the images or none of them.
+     *
+     * @param id    The identifier of the car.
+     * @param files The uploaded image files.
+     * @return The identifiers of the saved image files, in the order of the files.
+     * @throws ResourceNotFoundException Thrown if the specified car is not found.
+     * @throws BadRequestException       Thrown if the specified car is built-in or the files are not valid.
+     */
+    public List<String> saveImagesToCar(Long id, List<MultipartFile> files) {
+        Car car = getCar(id);
+        if (car.getBuiltin()) {
+            throw new BadRequestException(ErrorMessage.NOT_PERMITTED_METHOD_MESSAGE);
+        }
+
+        List<String> imageIds = imageFileService.saveImages(files);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Car current = getCar(id);
+                for (String imageId : imageIds) {
+                    current.getImage().add(imageFileService.findImageById(imageId));
+                }
+                carRepository.save(current);
+            });
+        } catch (RuntimeException e) {
+            imageIds.forEach(imageFileService::removeById);
+            throw e;
+        }
+        return imageIds;
+    }
+
     /**
      * Deletes a car by its identifier.
+     * Its images are deleted with it; their stored content is removed once no other image file refers to it.
      *
      * @param id   The identifier of the car to be deleted.
      * @throws BadRequestException           Thrown if the specified car is marked as built-in, and deletion is not permitted.
@@ -180,7 +237,18 @@ public class CarService {
             throw new BadRequestException(ErrorMessage.CAR_USED_BY_RESERVATION_MESSAGE);
         }
 
+        Set<ImageFile> images = new HashSet<>(car.getImage());
         carRepository.delete(car);
+        reportDataVersion.changed(ReportType.CARS);
+        carCalendarService.evict(id);
+
+        //orphanRemoval sadece ImageFile satirlarini siler, depodaki icerik ayrica temizlenir
+        for (ImageFile imageFile : images) {
+            imageFileService.evictImage(imageFile.getId());
+            if (imageFile.getHash() != null) {
+                imageFileService.deleteContentIfUnused(imageFile.getHash());
+            }
+        }
     }
 
     /**
@@ -197,12 +265,40 @@ public class CarService {
     }
 
     /**
-     * Retrieves a list of all cars.
+     * Streams all cars in id order from a database cursor, for reports.
+     * The stream must be consumed inside a transaction and closed by the caller.
      *
-     * @return List of Car entities representing all cars.
+     * @return Stream of Car entities representing all cars.
      */
-    public List<Car> getAllCar() {
-        return carRepository.getAllBy();
+    public Stream<Car> streamAllCars() {
+        return carRepository.streamAllBy();
     }
-}
 
+    /**
+     * Retrieves every car that is available during the provided time range, together with its total price.
+     * The cars are resolved with a single pass over the availability index when it is loaded,
+     * otherwise with a single anti-join query.
+     *
+     * @param pickUpTime   The pick-up time of the requested range.
+     * @param dropOffTime  The drop-off time of the requested range.
+     * @return List of AvailableCarDTOs containing the available cars and their quoted total prices.
+     * @throws BadRequestException Thrown if the requested time range is not valid.
+     */
+    public List<AvailableCarDTO> findAvailableCars(LocalDateTime pickUpTime, LocalDateTime dropOffTime) {
+        reservationService.checkReservationTimeIsCorrect(pickUpTime, dropOffTime);
+
+        List<Car> cars;
+        if (availabilityIndex.isReady()) {
+            cars = carRepository.findAll().stream().
+                    filter(car -> availabilityIndex.isAvailable(car.getId(), pickUpTime, dropOffTime, null)).
+                    collect(Collectors.toList());
+        } else {
+            cars = carRepository.findAvailableCars(pickUpTime, dropOffTime,
+                    ReservationAvailabilityIndex.INACTIVE_STATUSES);
+        }
+
+        return cars.stream().map(car -> new AvailableCarDTO(carMapper.carToCarDTO(car),
+                        reservationService.getTotalPrice(car, pickUpTime, dropOffTime))).
+                collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.domain.ImageData;
+import com.example.rentacar.dto.ImageExportEntry;
+import com.example.rentacar.repository.ImageDataRepository;
+import com.example.rentacar.repository.ImageFileRepository;
+import com.example.rentacar.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes all image files as a single ZIP archive, for CDN seeding and backups.
+ */
+@Service
+public class ImageExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageExportService.class);
+
+    @Autowired
+    private ImageFileRepository imageFileRepository;
+
+    @Autowired
+    private ImageDataRepository imageDataRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        //postgres cursor (fetch size) sadece acik bir transaction icinde calisir
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes the images to a ZIP archive, one entry per image file named {@code <id>/<file name>}.
+     * The image files are read in id order through a database cursor and the bytes of one image at a time are
+     * copied to the stream, so memory use does not depend on the number of images.
+     * Images whose bytes can't be found are skipped and logged.
+     *
+     * @param since Only images created at or after this time are exported, all images if null.
+     *              Images uploaded before the creation time was recorded are only part of a full export.
+     * @param out   The stream the archive is written to; it is finished but not closed.
+     * @return The number of exported images.
+     * @throws IOException Thrown if the archive can't be written, e.g. because the client disconnected.
+     */
+    public int exportImages(LocalDateTime since, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        //resimler zaten sikistirilmis, tekrar deflate etmek sadece CPU harcar
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        Integer count;
+        try {
+            count = readOnlyTransaction.execute(status -> {
+                try (Stream<ImageExportEntry> entries = since == null ?
+                        imageFileRepository.streamExportEntries() :
+                        imageFileRepository.streamExportEntriesSince(since)) {
+                    return writeEntries(entries.iterator(), zip);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        zip.finish();
+        zip.flush();
+        logger.info("Image export wrote {} images", count);
+        return count == null ? 0 : count;
+    }
+
+    private int writeEntries(Iterator<ImageExportEntry> entries, ZipOutputStream zip) throws IOException {
+        int count = 0;
+        while (entries.hasNext()) {
+            ImageExportEntry entry = entries.next();
+            if (entry.getHash() != null) {
+                InputStream in;
+                try {
+                    in = imageStorage.open(entry.getHash());
+                } catch (IOException e) {
+                    logger.error("Image {} skipped in the export : {}", entry.getId(), e.getMessage());
+                    continue;
+                }
+                try (InputStream content = in) {
+                    putEntry(zip, entry);
+                    content.transferTo(zip);
+                }
+            } else if (entry.getImageDataId() != null) {
+                Optional<ImageData> imageData = imageDataRepository.findById(entry.getImageDataId());
+                if (imageData.isEmpty()) {
+                    continue;
+                }
+                putEntry(zip, entry);
+                zip.write(imageData.get().getData());
+                //persistence context export boyunca buyumesin
+                entityManager.detach(imageData.get());
+            } else {
+                continue;
+            }
+            zip.closeEntry();
+            count++;
+        }
+        return count;
+    }
+
+    private void putEntry(ZipOutputStream zip, ImageExportEntry entry) throws IOException {
+        String name = entry.getName() == null || entry.getName().isBlank() ?
+                "image" : entry.getName().replace('/', '_').replace('\\', '_');
+        ZipEntry zipEntry = new ZipEntry(entry.getId() + "/" + name);
+        if (entry.getCreateDate() != null) {
+            zipEntry.setTimeLocal(entry.getCreateDate());
+        }
+        zip.putNextEntry(zipEntry);
+    }
+}
@@ -1,29 +1,137 @@
 package com.example.rentacar.service;
 
-import com.example.rentacar.domain.ImageData;
+import com.example.rentacar.availability.StripedLock;
 import com.example.rentacar.domain.ImageFile;
 import com.example.rentacar.dto.ImageFileDTO;
+import com.example.rentacar.dto.ImageFileMetadata;
+import com.example.rentacar.exception.BadRequestException;
 import com.example.rentacar.exception.ResourceNotFoundException;
+import com.example.rentacar.exception.TooManyRequestsException;
 import com.example.rentacar.exception.message.ErrorMessage;
 import com.example.rentacar.repository.ImageFileRepository;
+import com.example.rentacar.storage.ByteBufferResource;
+import com.example.rentacar.storage.ImageContent;
+import com.example.rentacar.storage.ImageStorage;
+import com.example.rentacar.storage.StagedBlob;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
 public class ImageFileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageFileService.class);
+
     @Autowired
     private ImageFileRepository imageFileRepository;
 
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Value("${rentacar.image.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${rentacar.image.cache.maxBytes:67108864}")
+    private long cacheMaxBytes;
+
+    @Value("${rentacar.image.cache.maxEntryBytes:2097152}")
+    private long cacheMaxEntryBytes;
+
+    @Value("${rentacar.image.cache.offHeap:false}")
+    private boolean cacheOffHeap;
+
+    @Value("${rentacar.image.upload.threads:4}")
+    private int uploadThreads;
+
+    @Value("${rentacar.image.upload.queueCapacity:64}")
+    private int uploadQueueCapacity;
+
+    @Value("${rentacar.image.upload.maxFiles:20}")
+    private int uploadMaxFiles;
+
+    private ThreadPoolExecutor uploadExecutor;
+
+    //serializes "store blob + save row" against "delete row + delete unused blob" for the same hash
+    private final StripedLock hashLock = new StripedLock(64);
+
+    //image id -> metadata and bytes, weighted by byte length, W-TinyLFU eviction
+    private Cache<String, ImageContent> imageCache;
+
+    //estimated heap cost of the metadata of a cache entry
+    private static final int CACHE_ENTRY_OVERHEAD = 256;
+
+    @PostConstruct
+    public void initUploadExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(uploadQueueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stopUploadExecutor() {
+        uploadExecutor.shutdownNow();
+    }
+
+    @PostConstruct
+    public void initCache() {
+        if (!cacheEnabled) {
+            return;
+        }
+        imageCache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String id, ImageContent image) -> (int) Math.min(Integer.MAX_VALUE,
+                        CACHE_ENTRY_OVERHEAD + (image.getData() == null ? 0 : image.getData().capacity())))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, imageCache, "imageCache");
+    }
+
     /**
      * Saves an image file to the system.
+     * The upload is streamed to the image storage while its content hash is computed, so it is never held in
+     * memory. Content that is already stored is not written again: the new image file refers to the existing blob.
      *
      * @param file   The MultipartFile representing the image file.
      * @return       The identifier of the saved image file.
@@ -31,19 +139,242 @@ public class ImageFileService {
      */
     public String saveImage(MultipartFile file) {
 
-        ImageFile imageFile = null;
-
         String fileName = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
 
-        try {
-            ImageData imData = new ImageData(file.getBytes());
-            imageFile = new ImageFile(fileName, file.getContentType(), imData);
+        try (InputStream in = file.getInputStream()) {
+            return saveImage(fileName, file.getContentType(), in);
         } catch (IOException e) {
             throw new RuntimeException(e.getMessage());
         }
+    }
+
+    /**
+     * Saves several image files at once. All files are validated first, then stored concurrently on the bounded
+     * upload pool. If any file fails, the files already saved by this call are removed again.
+     *
+     * @param files The uploaded files.
+     * @return The identifiers of the saved image files, in the order of the files.
+     * @throws BadRequestException      Thrown if the number of files is not valid or a file is empty or not an image.
+     * @throws TooManyRequestsException Thrown if the upload pool can't accept the files.
+     * @throws RuntimeException         Thrown if an error occurs while storing a file.
+     */
+    public List<String> saveImages(List<MultipartFile> files) {
+        if (files == null || files.isEmpty() || files.size() > uploadMaxFiles) {
+            throw new BadRequestException(String.format(ErrorMessage.IMAGE_BATCH_SIZE_INCORRECT_MESSAGE, uploadMaxFiles));
+        }
+        for (MultipartFile file : files) {
+            String type = file.getContentType();
+            if (file.isEmpty() || type == null || !type.startsWith("image/")) {
+                throw new BadRequestException(String.format(ErrorMessage.IMAGE_TYPE_INCORRECT_MESSAGE, file.getOriginalFilename()));
+            }
+        }
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                futures.add(CompletableFuture.supplyAsync(() -> saveImage(file), uploadExecutor));
+            }
+        } catch (RejectedExecutionException e) {
+            removeSaved(futures);
+            throw new TooManyRequestsException(ErrorMessage.IMAGE_UPLOAD_BUSY_MESSAGE);
+        }
+
+        List<String> ids = new ArrayList<>(files.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<String> future : futures) {
+            try {
+                ids.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException ?
+                            (RuntimeException) e.getCause() : new RuntimeException(e.getCause().getMessage());
+                }
+            }
+        }
+        if (failure != null) {
+            removeSaved(futures);
+            throw failure;
+        }
+        return ids;
+    }
+
+    //tum futurelar bittikten sonra basarili olanlari geri al
+    private void removeSaved(List<CompletableFuture<String>> futures) {
+        for (CompletableFuture<String> future : futures) {
+            String id;
+            try {
+                id = future.join();
+            } catch (CompletionException e) {
+                //basarisiz yukleme, silinecek bir sey yok
+                continue;
+            }
+            try {
+                removeById(id);
+            } catch (RuntimeException e) {
+                logger.warn("Image {} of a failed upload could not be removed : {}", id, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stores the image content and saves the metadata of a new image file.
+     *
+     * @param fileName    The name of the image file.
+     * @param contentType The content type of the image file.
+     * @param in          The image content, read to its end but not closed.
+     * @return The identifier of the saved image file.
+     * @throws IOException Thrown if the content can't be read or stored.
+     */
+    public String saveImage(String fileName, String contentType, InputStream in) throws IOException {
+        StagedBlob blob = imageStorage.stage(in);
+        try {
+            //bir resim tek bir araca baglanabildigi icin ayni icerik icin de yeni bir ImageFile kaydi olusturulur
+            ImageFile imageFile = hashLock.callLocked(blob.getHash().hashCode(), () -> {
+                try {
+                    imageStorage.commit(blob);
+                } catch (IOException e) {
+                    throw new RuntimeException(e.getMessage());
+                }
+                return imageFileRepository.save(new ImageFile(fileName, contentType, blob.getLength(), blob.getHash()));
+            });
+            imageRenditionService.pregenerate(blob.getHash(), contentType);
+            return imageFile.getId();
+        } finally {
+            imageStorage.discard(blob);
+        }
+    }
 
-        imageFileRepository.save(imageFile);
-        return imageFile.getId();
+    /**
+     * Reads the bytes of an image file, from the image storage or, for images not migrated yet, from the database.
+     *
+     * @param imageFile The image file.
+     * @return The image bytes.
+     * @throws ResourceNotFoundException Thrown if the bytes of the image can't be found.
+     */
+    public byte[] getImageData(ImageFile imageFile) {
+        if (imageFile.getHash() == null) {
+            if (imageFile.getImageData() == null) {
+                throw new ResourceNotFoundException(String.format(ErrorMessage.IMAGE_NOT_FOUND_MESSAGE, imageFile.getId()));
+            }
+            return imageFile.getImageData().getData();
+        }
+        try {
+            return imageStorage.read(imageFile.getHash());
+        } catch (IOException e) {
+            logger.error("Image {} could not be read from the storage : {}", imageFile.getId(), e.getMessage());
+            throw new ResourceNotFoundException(String.format(ErrorMessage.IMAGE_NOT_FOUND_MESSAGE, imageFile.getId()));
+        }
+    }
+
+    /**
+     * Retrieves the entity tag of an image without reading its bytes, from the cache when possible.
+     *
+     * @param id The identifier of the image file.
+     * @return The quoted entity tag of the image.
+     * @throws ResourceNotFoundException Thrown if the specified image file is not found.
+     */
+    public String getImageETag(String id) {
+        return getImageInfo(id).getETag();
+    }
+
+    /**
+     * Retrieves the metadata of an image without reading its bytes, from the cache when possible.
+     *
+     * @param id The identifier of the image file.
+     * @return The image content, with its bytes only if it was already cached.
+     * @throws ResourceNotFoundException Thrown if the specified image file is not found.
+     */
+    public ImageContent getImageInfo(String id) {
+        ImageContent cached = imageCache == null ? null : imageCache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        return new ImageContent(getImageById(id), null);
+    }
+
+    /**
+     * Retrieves an image with its bytes through the hot image cache. Images larger than the configured
+     * entry size are cached without their bytes, which are then streamed from the storage.
+     *
+     * @param id The identifier of the image file.
+     * @return The image content.
+     * @throws ResourceNotFoundException Thrown if the specified image file is not found.
+     */
+    public ImageContent getImageContent(String id) {
+        if (imageCache == null) {
+            return new ImageContent(getImageById(id), null);
+        }
+        return imageCache.get(id, this::loadImageContent);
+    }
+
+    private ImageContent loadImageContent(String id) {
+        ImageFile imageFile = getImageById(id);
+        if (imageFile.getLength() > cacheMaxEntryBytes) {
+            return new ImageContent(imageFile, null);
+        }
+        byte[] data = getImageData(imageFile);
+        ByteBuffer buffer;
+        if (cacheOffHeap) {
+            buffer = ByteBuffer.allocateDirect(data.length);
+            buffer.put(data).flip();
+        } else {
+            buffer = ByteBuffer.wrap(data);
+        }
+        return new ImageContent(imageFile, buffer);
+    }
+
+    /**
+     * Returns the bytes of an image as a resource that is streamed when the response is written:
+     * the cached buffer when the image is cached, otherwise the storage file.
+     *
+     * @param image The image content.
+     * @return The resource of the image bytes.
+     * @throws ResourceNotFoundException Thrown if the bytes of the image can't be found.
+     */
+    public Resource getImageResource(ImageContent image) {
+        if (image.getData() != null) {
+            return new ByteBufferResource(image.getData(), image.getId());
+        }
+        if (image.getHash() == null) {
+            return getImageResource(getImageById(image.getId()));
+        }
+        try {
+            return imageStorage.getResource(image.getHash());
+        } catch (IOException e) {
+            logger.error("Image {} could not be found in the storage : {}", image.getId(), e.getMessage());
+            throw new ResourceNotFoundException(String.format(ErrorMessage.IMAGE_NOT_FOUND_MESSAGE, image.getId()));
+        }
+    }
+
+    /**
+     * Drops an image from the hot image cache, e.g. after its storage changed.
+     *
+     * @param id The identifier of the image file.
+     */
+    public void evictImage(String id) {
+        if (imageCache != null) {
+            imageCache.invalidate(id);
+        }
+    }
+
+    /**
+     * Returns the content of an image file as a resource that is streamed when the response is written.
+     * Images not migrated to the image storage yet are served from their database bytes.
+     *
+     * @param imageFile The image file.
+     * @return The resource of the image content.
+     * @throws ResourceNotFoundException Thrown if the bytes of the image can't be found.
+     */
+    public Resource getImageResource(ImageFile imageFile) {
+        if (imageFile.getHash() == null) {
+            return new ByteArrayResource(getImageData(imageFile));
+        }
+        try {
+            return imageStorage.getResource(imageFile.getHash());
+        } catch (IOException e) {
+            logger.error("Image {} could not be found in the storage : {}", imageFile.getId(), e.getMessage());
+            throw new ResourceNotFoundException(String.format(ErrorMessage.IMAGE_NOT_FOUND_MESSAGE, imageFile.getId()));
+        }
     }
 
     /**
@@ -64,12 +395,13 @@ public class ImageFileService {
 
     /**
      * Retrieves a list of all image files with their metadata.
+     * Only the t_imagefile columns are read, the image bytes are never loaded.
      *
      * @return List of ImageFileDTO representing all image files.
      */
     public List<ImageFileDTO> getAllImages() {
 
-        List<ImageFile> imageFiles = imageFileRepository.findAll();
+        List<ImageFileMetadata> imageFiles = imageFileRepository.findAllMetadata();
 
         List<ImageFileDTO> imageFileDTOs = imageFiles.stream().map(imFile -> {
             String imageUri = ServletUriComponentsBuilder.fromCurrentContextPath().
@@ -83,14 +415,74 @@ public class ImageFileService {
 
     /**
      * Removes an image file by its identifier.
+     * The stored bytes are deleted too once no other image file refers to the same content.
      *
      * @param id   The identifier of the image file to be removed.
+     * @return     The number of bytes deleted from the image storage, 0 if the content is still used or was kept
+     *             in the database (its large object is reclaimed later by {@link ImageGarbageCollectionService}).
      * @throws ResourceNotFoundException Thrown if the specified image file is not found.
      */
-    public void removeById(String id) {
+    public long removeById(String id) {
         ImageFile imageFile = getImageById(id);
-        imageFileRepository.delete(imageFile);
+        evictImage(id);
+        String hash = imageFile.getHash();
+        if (hash == null) {
+            imageFileRepository.delete(imageFile);
+            return 0;
+        }
+        return hashLock.callLocked(hash.hashCode(), () -> {
+            imageFileRepository.delete(imageFile);
+            return deleteContentIfUnused(hash);
+        });
+    }
+
+    /**
+     * Deletes a content and its renditions from the image storage if no image file refers to it any more,
+     * e.g. after its image files were removed together with their car.
+     * Inside a transaction the content is only deleted once the transaction commits, so a rollback of the
+     * image file removal never leaves rows pointing to a deleted content.
+     *
+     * @param hash The content hash.
+     * @return The number of bytes deleted from the image storage, 0 if the content is still used.
+     */
+    public long deleteContentIfUnused(String hash) {
+        return hashLock.callLocked(hash.hashCode(), () -> {
+            if (imageFileRepository.countByHash(hash) > 0) {
+                return 0L;
+            }
+            long length;
+            try {
+                length = imageStorage.exists(hash) ? imageStorage.getResource(hash).contentLength() : 0;
+            } catch (IOException e) {
+                logger.warn("Unused image blob {} could not be deleted : {}", hash, e.getMessage());
+                return 0L;
+            }
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                deleteContent(hash);
+                return length;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    //commit ile silme arasinda ayni icerik yeniden yuklenmis olabilir
+                    hashLock.runLocked(hash.hashCode(), () -> {
+                        if (imageFileRepository.countByHash(hash) == 0) {
+                            deleteContent(hash);
+                        }
+                    });
+                }
+            });
+            return length;
+        });
+    }
 
+    private void deleteContent(String hash) {
+        imageRenditionService.deleteRenditions(hash);
+        try {
+            imageStorage.delete(hash);
+        } catch (IOException e) {
+            logger.warn("Unused image blob {} could not be deleted : {}", hash, e.getMessage());
+        }
     }
 
     /**
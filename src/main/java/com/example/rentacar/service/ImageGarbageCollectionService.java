@@ -0,0 +1,207 @@
+package com.example.rentacar.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reclaims the space of images nobody can reach any more:
+ * image files never attached to a car once their grace period is over, and PostgreSQL large objects
+ * (the {@code @Lob} bytes of t_imagedata) left behind when their row was deleted, which Hibernate never unlinks.
+ * Work is done in small batches, one short transaction per item, with a pause between batches.
+ * Like vacuumlo, a large object is orphaned only if no oid or lo column of any table in the database refers to it,
+ * so large objects of other tables, entities or applications sharing the database are kept.
+ */
+@Service
+public class ImageGarbageCollectionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageGarbageCollectionService.class);
+
+    //create_date null: uploaded before the column existed, long past any grace period
+    private static final String UNATTACHED_IMAGES_SQL = "select id from t_imagefile " +
+            "where car_id is null and (create_date is null or create_date < ?) and id > ? order by id limit ?";
+
+    //a car attaching the image in the meantime either waits for this lock or is seen by the check
+    private static final String LOCK_UNATTACHED_IMAGE_SQL =
+            "select id from t_imagefile where id = ? and car_id is null for update skip locked";
+
+    //vacuumlo ile ayni sorgu: information_schema yetki olmayan tablolari gizledigi icin pg_catalog okunur
+    private static final String LARGE_OBJECT_COLUMNS_SQL = "select quote_ident(s.nspname) || '.' || " +
+            "quote_ident(c.relname) as table_name, quote_ident(a.attname) as column_name " +
+            "from pg_class c join pg_attribute a on a.attrelid = c.oid join pg_namespace s on s.oid = c.relnamespace " +
+            "join pg_type t on t.oid = a.atttypid " +
+            "where a.attnum > 0 and not a.attisdropped and t.typname in ('oid', 'lo') " +
+            "and c.relkind in ('r', 'm', 'p') and s.nspname !~ '^pg_' and s.nspname <> 'information_schema'";
+
+    //large objects created by a not yet committed transaction are not visible here, so they are never taken
+    private static final String ORPHAN_LARGE_OBJECTS_SQL = "select m.oid from pg_largeobject_metadata m " +
+            "where m.oid > ?::oid%s order by m.oid limit ?";
+
+    private static final String NOT_REFERENCED_SQL = " and not exists (select 1 from %s x where x.%s = m.oid)";
+
+    //262144 = INV_READ; the size is the end offset of the object, so none of its data is read
+    private static final String LARGE_OBJECT_OPEN_SQL = "select lo_open(?::oid, 262144)";
+
+    private static final String LARGE_OBJECT_SIZE_SQL = "select lo_lseek64(?, 0, 2)";
+
+    private static final String LARGE_OBJECT_CLOSE_SQL = "select lo_close(?)";
+
+    private static final String LARGE_OBJECT_UNLINK_SQL = "select lo_unlink(?::oid)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ImageFileService imageFileService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rentacar.image.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rentacar.image.gc.largeObjects:true}")
+    private boolean largeObjectsEnabled;
+
+    @Value("${rentacar.image.gc.graceHours:24}")
+    private long graceHours;
+
+    @Value("${rentacar.image.gc.batchSize:100}")
+    private int batchSize;
+
+    @Value("${rentacar.image.gc.maxPerRun:10000}")
+    private int maxPerRun;
+
+    @Value("${rentacar.image.gc.throttleMs:200}")
+    private long throttleMs;
+
+    private Counter reclaimedBytesCounter;
+
+    private Counter deletedImagesCounter;
+
+    private Counter unlinkedObjectsCounter;
+
+    @PostConstruct
+    public void registerMetrics() {
+        reclaimedBytesCounter = Counter.builder("rentacar.image.gc.reclaimed")
+                .description("Bytes freed by the image garbage collection, from the image storage and from large objects")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        deletedImagesCounter = Counter.builder("rentacar.image.gc.images.deleted")
+                .description("Image files deleted because they were never attached to a car")
+                .register(meterRegistry);
+        unlinkedObjectsCounter = Counter.builder("rentacar.image.gc.largeobjects.unlinked")
+                .description("Orphaned PostgreSQL large objects unlinked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs both reclamation passes. A database error stops the current pass; the next run starts over.
+     */
+    @Scheduled(fixedDelayString = "${rentacar.image.gc.fixedDelayMs:3600000}",
+            initialDelayString = "${rentacar.image.gc.initialDelayMs:300000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            deleteUnattachedImages();
+            if (largeObjectsEnabled) {
+                unlinkOrphanLargeObjects();
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Image garbage collection stopped : {}", NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deleteUnattachedImages() throws InterruptedException {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(graceHours));
+        String lastId = "";
+        int deleted = 0;
+        long reclaimed = 0;
+        int processed = 0;
+        while (processed < maxPerRun) {
+            List<String> ids = jdbcTemplate.queryForList(UNATTACHED_IMAGES_SQL, String.class,
+                    cutoff, lastId, Math.min(batchSize, maxPerRun - processed));
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (String id : ids) {
+                Long bytes = transactionTemplate.execute(status -> {
+                    List<String> locked = jdbcTemplate.queryForList(LOCK_UNATTACHED_IMAGE_SQL, String.class, id);
+                    return locked.isEmpty() ? null : imageFileService.removeById(id);
+                });
+                if (bytes != null) {
+                    deleted++;
+                    reclaimed += bytes;
+                    deletedImagesCounter.increment();
+                    reclaimedBytesCounter.increment(bytes);
+                }
+                lastId = id;
+            }
+            processed += ids.size();
+            Thread.sleep(throttleMs);
+        }
+        if (deleted > 0) {
+            logger.info("Image garbage collection deleted {} unattached images, {} bytes", deleted, reclaimed);
+        }
+    }
+
+    private void unlinkOrphanLargeObjects() throws InterruptedException {
+        //kolonlar her calismada yeniden okunur, sonradan eklenen tablolar da korunur
+        List<String> references = jdbcTemplate.query(LARGE_OBJECT_COLUMNS_SQL, (rs, rowNum) ->
+                String.format(NOT_REFERENCED_SQL, rs.getString("table_name"), rs.getString("column_name")));
+        if (references.isEmpty()) {
+            //t_imagedata bile gorunmuyorsa hicbir large object bu uygulamaya ait sayilmaz
+            return;
+        }
+        String orphanSql = String.format(ORPHAN_LARGE_OBJECTS_SQL, String.join("", references));
+        long lastOid = 0;
+        int unlinked = 0;
+        long reclaimed = 0;
+        while (unlinked < maxPerRun) {
+            List<Long> oids = jdbcTemplate.queryForList(orphanSql, Long.class,
+                    lastOid, Math.min(batchSize, maxPerRun - unlinked));
+            if (oids.isEmpty()) {
+                break;
+            }
+            for (Long oid : oids) {
+                Long bytes = transactionTemplate.execute(status -> {
+                    int fd = jdbcTemplate.queryForObject(LARGE_OBJECT_OPEN_SQL, Integer.class, oid);
+                    long size = jdbcTemplate.queryForObject(LARGE_OBJECT_SIZE_SQL, Long.class, fd);
+                    jdbcTemplate.queryForObject(LARGE_OBJECT_CLOSE_SQL, Integer.class, fd);
+                    jdbcTemplate.queryForObject(LARGE_OBJECT_UNLINK_SQL, Integer.class, oid);
+                    return size;
+                });
+                unlinked++;
+                reclaimed += bytes;
+                unlinkedObjectsCounter.increment();
+                reclaimedBytesCounter.increment(bytes);
+                lastOid = oid;
+            }
+            Thread.sleep(throttleMs);
+        }
+        if (unlinked > 0) {
+            logger.info("Image garbage collection unlinked {} large objects, {} bytes", unlinked, reclaimed);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.domain.ImageData;
+import com.example.rentacar.domain.ImageFile;
+import com.example.rentacar.dto.ImageMigrationReport;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.repository.ImageDataRepository;
+import com.example.rentacar.repository.ImageFileRepository;
+import com.example.rentacar.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Moves the bytes of images uploaded before the {@link ImageStorage} existed from t_imagedata to the storage.
+ */
+@Service
+public class ImageMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageMigrationService.class);
+
+    @Autowired
+    private ImageFileRepository imageFileRepository;
+
+    @Autowired
+    private ImageDataRepository imageDataRepository;
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Autowired
+    private ImageFileService imageFileService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Migrates legacy images in batches of ids. Every image is moved in its own short transaction and the
+     * persistence context is cleared after each one, so only one image is held in memory at a time.
+     * A failed image is skipped and left in the database; the migration can be run again.
+     *
+     * @param batchSize  The number of image ids read per query.
+     * @param maxImages  The maximum number of images to migrate in this call.
+     * @return The numbers of migrated and failed images.
+     * @throws BadRequestException Thrown if the batch size or the maximum number of images is not positive.
+     */
+    public ImageMigrationReport migrateLegacyImages(int batchSize, int maxImages) {
+        if (batchSize < 1 || maxImages < 1) {
+            throw new BadRequestException(ErrorMessage.IMAGE_MIGRATION_LIMIT_INCORRECT_MESSAGE);
+        }
+        ImageMigrationReport report = new ImageMigrationReport();
+        String lastId = "";
+        while (report.getMigrated() + report.getFailed() < maxImages) {
+            int limit = Math.min(batchSize, maxImages - report.getMigrated() - report.getFailed());
+            List<String> ids = imageFileRepository.findLegacyImageIds(lastId, PageRequest.of(0, limit));
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (String id : ids) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> migrate(id));
+                    imageFileService.evictImage(id);
+                    report.setMigrated(report.getMigrated() + 1);
+                } catch (RuntimeException e) {
+                    logger.error("Image {} could not be migrated : {}", id, e.getMessage());
+                    report.setFailed(report.getFailed() + 1);
+                } finally {
+                    entityManager.clear();
+                }
+                lastId = id;
+            }
+        }
+        report.setRemaining(imageFileRepository.countByHashIsNullAndImageDataIsNotNull());
+        logger.info("Image migration moved {} images, {} failed, {} remaining",
+                report.getMigrated(), report.getFailed(), report.getRemaining());
+        return report;
+    }
+
+    private void migrate(String id) {
+        ImageFile imageFile = entityManager.find(ImageFile.class, id);
+        ImageData imageData = imageFile.getImageData();
+        String hash;
+        try {
+            hash = imageStorage.store(imageData.getData());
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        imageFile.setHash(hash);
+        imageFile.setLength(imageData.getData().length);
+        imageFile.setImageData(null);
+        imageDataRepository.delete(imageData);
+    }
+}
@@ -0,0 +1,503 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.ResourceNotFoundException;
+import com.example.rentacar.exception.TooManyRequestsException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.storage.ImageContent;
+import com.example.rentacar.storage.ImageStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Produces resized renditions of stored images. Renditions are computed with {@code javax.imageio} on a bounded
+ * worker pool, written to disk as {@code <hash>_<w>x<h>.<format>} and reused for every later request.
+ * Concurrent requests for the same rendition share one computation.
+ * Requested sizes are snapped to the configured breakpoints, so an image has a fixed, small set of renditions
+ * whatever sizes clients ask for, and the least recently used renditions are deleted once the store
+ * grows over its maximum size.
+ */
+@Service
+public class ImageRenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionService.class);
+
+    @Autowired
+    private ImageStorage imageStorage;
+
+    @Value("${rentacar.image.rendition.root:image-store/renditions}")
+    private String root;
+
+    @Value("${rentacar.image.rendition.threads:2}")
+    private int threads;
+
+    @Value("${rentacar.image.rendition.queueCapacity:64}")
+    private int queueCapacity;
+
+    @Value("${rentacar.image.rendition.timeoutMs:10000}")
+    private long timeoutMs;
+
+    @Value("${rentacar.image.rendition.maxDimension:2048}")
+    private int maxDimension;
+
+    //decoding larger sources would need hundreds of MB of heap
+    @Value("${rentacar.image.rendition.maxSourcePixels:40000000}")
+    private long maxSourcePixels;
+
+    //the only rendition sizes, generated right after an upload, e.g. 320x240,640x480
+    @Value("${rentacar.image.rendition.breakpoints:320x240,640x480,1280x960}")
+    private List<String> breakpoints;
+
+    @Value("${rentacar.image.rendition.maxStoreBytes:1073741824}")
+    private long maxStoreBytes;
+
+    //renditions used less recently than this are touched again when served, for the eviction order
+    private static final long TOUCH_INTERVAL_MS = 60 * 60 * 1000L;
+
+    private Path rootPath;
+
+    //parsed breakpoints, {width, height}
+    private List<int[]> sizes;
+
+    //approximate size of the rendition files, recomputed on every eviction
+    private final AtomicLong storeBytes = new AtomicLong();
+
+    private ThreadPoolExecutor executor;
+
+    //rendition file name -> computation in progress
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        sizes = parseBreakpoints(breakpoints);
+        rootPath = Paths.get(root).toAbsolutePath().normalize();
+        Files.createDirectories(rootPath);
+        storeBytes.set(listRenditions().stream().mapToLong(Rendition::getSize).sum());
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the rendition of an image for the given box, computing it if needed.
+     * The box is snapped to the smallest breakpoint containing it (the largest breakpoint if none does),
+     * so the rendition may be larger than requested. The aspect ratio is kept and images are never enlarged.
+     * A missing dimension is taken from the breakpoint, so e.g. a width-only request is served by the same
+     * pregenerated rendition as a request for the whole box.
+     *
+     * @param image  The image, which must be kept in the image storage (have a hash).
+     * @param width  The maximum width, may be null.
+     * @param height The maximum height, may be null.
+     * @return The path of the rendition file.
+     * @throws BadRequestException       Thrown if the requested size is not valid or the image can't be resized.
+     * @throws TooManyRequestsException  Thrown if the worker pool can't accept more renditions.
+     * @throws ResourceNotFoundException Thrown if the image bytes can't be found.
+     */
+    public Path getRendition(ImageContent image, Integer width, Integer height) {
+        int[] size = snap(width, height);
+        int w = size[0];
+        int h = size[1];
+        Path path = rootPath.resolve(fileName(image.getHash(), w, h, image.getType()));
+        if (Files.exists(path)) {
+            touch(path);
+            return path;
+        }
+        CompletableFuture<Path> future;
+        try {
+            future = submit(image.getHash(), image.getType(), w, h, path);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException(ErrorMessage.IMAGE_RENDITION_BUSY_MESSAGE);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException(ErrorMessage.IMAGE_RENDITION_BUSY_MESSAGE);
+        } catch (TimeoutException e) {
+            throw new TooManyRequestsException(ErrorMessage.IMAGE_RENDITION_BUSY_MESSAGE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BadRequestException(ErrorMessage.IMAGE_RESIZE_ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Identifies the rendition served for a requested size, e.g. for an ETag. Requests snapped to the same
+     * breakpoint get the same tag.
+     *
+     * @param image  The image, which must be kept in the image storage (have a hash).
+     * @param width  The maximum width, may be null.
+     * @param height The maximum height, may be null.
+     * @return The tag of the rendition.
+     * @throws BadRequestException Thrown if the requested size is not valid.
+     */
+    public String getRenditionTag(ImageContent image, Integer width, Integer height) {
+        int[] size = snap(width, height);
+        return image.getHash() + "-" + size[0] + "x" + size[1];
+    }
+
+    /**
+     * Queues the renditions of the configured breakpoints for a newly stored image.
+     * Breakpoints that can't be queued are skipped; they will be computed on first request.
+     *
+     * @param hash The hash of the stored image.
+     * @param type The content type of the image.
+     */
+    public void pregenerate(String hash, String type) {
+        for (int[] size : sizes) {
+            int w = size[0];
+            int h = size[1];
+            Path path = rootPath.resolve(fileName(hash, w, h, type));
+            if (Files.exists(path)) {
+                continue;
+            }
+            try {
+                submit(hash, type, w, h, path);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Rendition {} not pregenerated, worker pool is busy", path.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Deletes every rendition of a stored image. Called when the image bytes are deleted.
+     *
+     * @param hash The hash of the deleted image.
+     */
+    public void deleteRenditions(String hash) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(rootPath, hash + "_*")) {
+            for (Path file : files) {
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    storeBytes.addAndGet(-size);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Renditions of {} could not be deleted : {}", hash, e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Path> submit(String hash, String type, int w, int h, Path path) {
+        String key = path.getFileName().toString();
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    created.complete(render(hash, type, w, h, path));
+                } catch (Throwable e) {
+                    created.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        return created;
+    }
+
+    private Path render(String hash, String type, int w, int h, Path path) throws IOException {
+        //baska bir istek araya girip uretmis olabilir
+        if (Files.exists(path)) {
+            return path;
+        }
+        BufferedImage source = read(hash);
+        BufferedImage resized = resize(source, w, h, !isPng(type));
+
+        Path temp = Files.createTempFile(rootPath, "rendition", ".tmp");
+        try {
+            if (!ImageIO.write(resized, formatOf(type), temp.toFile())) {
+                throw new BadRequestException(ErrorMessage.IMAGE_RESIZE_ERROR_MESSAGE);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        if (storeBytes.addAndGet(Files.size(path)) > maxStoreBytes) {
+            evict(path);
+        }
+        return path;
+    }
+
+    /**
+     * Deletes the least recently used renditions until the store is back to 90% of its maximum size.
+     * The rendition just computed is kept, the request waiting for it still has to read it.
+     */
+    private synchronized void evict(Path keep) throws IOException {
+        List<Rendition> renditions = listRenditions();
+        long total = renditions.stream().mapToLong(Rendition::getSize).sum();
+        long target = maxStoreBytes / 10 * 9;
+        renditions.sort(Comparator.comparing(Rendition::getLastUsed));
+        int deleted = 0;
+        for (Rendition rendition : renditions) {
+            if (total <= target) {
+                break;
+            }
+            if (rendition.getPath().equals(keep)) {
+                continue;
+            }
+            if (Files.deleteIfExists(rendition.getPath())) {
+                total -= rendition.getSize();
+                deleted++;
+            }
+        }
+        storeBytes.set(total);
+        logger.info("Rendition store over {} bytes, {} renditions evicted", maxStoreBytes, deleted);
+    }
+
+    private List<Rendition> listRenditions() throws IOException {
+        List<Rendition> renditions = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(rootPath, "*_*x*.*")) {
+            for (Path file : files) {
+                try {
+                    renditions.add(new Rendition(file, Files.size(file), Files.getLastModifiedTime(file)));
+                } catch (IOException e) {
+                    //baska bir thread silmis olabilir
+                }
+            }
+        }
+        return renditions;
+    }
+
+    private void touch(Path path) {
+        try {
+            FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+            //her istekte degil, en fazla saatte bir yazilir
+            if (now.toMillis() - Files.getLastModifiedTime(path).toMillis() > TOUCH_INTERVAL_MS) {
+                Files.setLastModifiedTime(path, now);
+            }
+        } catch (IOException e) {
+            //evicted in the meantime, the caller still holds a usable path until it opens the file
+        }
+    }
+
+    private BufferedImage read(String hash) throws IOException {
+        try (InputStream in = imageStorage.open(hash); ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                throw new BadRequestException(ErrorMessage.IMAGE_RESIZE_ERROR_MESSAGE);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxSourcePixels) {
+                    throw new BadRequestException(ErrorMessage.IMAGE_RESIZE_ERROR_MESSAGE);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image down to fit in w x h (0 = unconstrained), halving it step by step first
+     * so large reductions keep their quality with bilinear interpolation.
+     */
+    static BufferedImage resize(BufferedImage source, int w, int h, boolean opaque) {
+        double scale = 1.0;
+        if (w > 0) {
+            scale = Math.min(scale, (double) w / source.getWidth());
+        }
+        if (h > 0) {
+            scale = Math.min(scale, (double) h / source.getHeight());
+        }
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        int imageType = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            if (current != source && currentWidth == current.getWidth() && currentHeight == current.getHeight()) {
+                break;
+            }
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight, imageType);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    /**
+     * Snaps a requested box to the smallest breakpoint containing it, or to the largest breakpoint.
+     * A missing dimension is snapped too: fitting inside the breakpoint keeps the aspect ratio anyway.
+     */
+    int[] snap(Integer width, Integer height) {
+        int w = checkDimension(width);
+        int h = checkDimension(height);
+        int[] best = null;
+        for (int[] size : sizes) {
+            boolean fits = size[0] >= w && size[1] >= h;
+            if (fits && (best == null || area(size) < area(best))) {
+                best = size;
+            }
+        }
+        if (best == null) {
+            best = Collections.max(sizes, Comparator.comparingLong(ImageRenditionService::area));
+        }
+        return new int[]{best[0], best[1]};
+    }
+
+    private static long area(int[] size) {
+        return (long) size[0] * size[1];
+    }
+
+    /**
+     * Parses the breakpoint configuration, e.g. [320x240, 640x480].
+     *
+     * @throws IllegalStateException Thrown if an entry is not a valid size, so a bad configuration fails the startup
+     *                               instead of every upload.
+     */
+    List<int[]> parseBreakpoints(List<String> values) {
+        List<int[]> parsed = new ArrayList<>();
+        for (String value : values) {
+            if (value.isBlank()) {
+                continue;
+            }
+            String[] size = value.trim().split("x");
+            try {
+                if (size.length != 2) {
+                    throw new NumberFormatException(value);
+                }
+                int w = Integer.parseInt(size[0].trim());
+                int h = Integer.parseInt(size[1].trim());
+                if (w < 1 || h < 1 || w > maxDimension || h > maxDimension) {
+                    throw new NumberFormatException(value);
+                }
+                parsed.add(new int[]{w, h});
+            } catch (NumberFormatException e) {
+                throw new IllegalStateException("rentacar.image.rendition.breakpoints entry '" + value +
+                        "' is not a size like 640x480 between 1 and " + maxDimension);
+            }
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalStateException("rentacar.image.rendition.breakpoints must contain at least one size");
+        }
+        return parsed;
+    }
+
+    private int checkDimension(Integer dimension) {
+        if (dimension == null) {
+            return 0;
+        }
+        if (dimension < 1 || dimension > maxDimension) {
+            throw new BadRequestException(String.format(ErrorMessage.IMAGE_SIZE_INCORRECT_MESSAGE, maxDimension));
+        }
+        return dimension;
+    }
+
+    private static String fileName(String hash, int w, int h, String type) {
+        return hash + "_" + w + "x" + h + "." + formatOf(type);
+    }
+
+    private static boolean isPng(String type) {
+        return type != null && (type.equalsIgnoreCase("image/png") || type.equalsIgnoreCase("image/gif"));
+    }
+
+    private static String formatOf(String type) {
+        return isPng(type) ? "png" : "jpg";
+    }
+
+    private static final class Rendition {
+
+        private final Path path;
+
+        private final long size;
+
+        private final FileTime lastUsed;
+
+        private Rendition(Path path, long size, FileTime lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        FileTime getLastUsed() {
+            return lastUsed;
+        }
+    }
+
+    /**
+     * Content type of the renditions of an image.
+     *
+     * @param type The content type of the original image.
+     * @return image/png for images with transparency support, image/jpeg otherwise.
+     */
+    public static String renditionType(String type) {
+        return isPng(type) ? "image/png" : "image/jpeg";
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.ResourceNotFoundException;
+import com.example.rentacar.exception.TooManyRequestsException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.report.ReportFormat;
+import com.example.rentacar.report.ReportJob;
+import com.example.rentacar.report.ReportJobStatus;
+import com.example.rentacar.report.ReportType;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates reports in the background on a small bounded pool and keeps the files on local disk.
+ * The last report of every type and format is reused as long as its data version is current, so a repeated
+ * request for unchanged data is answered without touching the database; an identical request made while the
+ * report is being generated joins the running job.
+ */
+@Service
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportDataVersion reportDataVersion;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rentacar.report.job.root:report-jobs}")
+    private String root;
+
+    @Value("${rentacar.report.job.threads:2}")
+    private int threads;
+
+    @Value("${rentacar.report.job.queueCapacity:8}")
+    private int queueCapacity;
+
+    @Value("${rentacar.report.job.resultTtlMs:3600000}")
+    private long resultTtlMs;
+
+    private Path rootPath;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    //"type.format" -> son istenen rapor
+    private final Map<String, ReportJob> latestJobs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        rootPath = Paths.get(root).toAbsolutePath().normalize();
+        Files.createDirectories(rootPath);
+        //versiyon sayaclari sifirdan basladigi icin onceki calismanin dosyalari kullanilamaz
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(rootPath)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("rentacar.report.job.queue", executor, e -> e.getQueue().size())
+                .description("Report jobs waiting for a report thread")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Requests a report. The current report is returned when its data has not changed since it was generated
+     * (or is being generated), otherwise a new job is queued.
+     *
+     * @param type   The report.
+     * @param format The report format.
+     * @return The job of the report, already DONE when the cached file could be reused.
+     * @throws TooManyRequestsException Thrown if the report queue is full.
+     */
+    public synchronized ReportJob submit(ReportType type, ReportFormat format) {
+        String slot = type.name() + "." + format.name();
+        String version = reportDataVersion.versionOf(type);
+
+        ReportJob latest = latestJobs.get(slot);
+        if (latest != null && latest.getVersion().equals(version) && latest.getStatus() != ReportJobStatus.FAILED) {
+            return latest;
+        }
+
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), type, format, version);
+        try {
+            executor.execute(() -> generate(job));
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException(ErrorMessage.REPORT_JOB_BUSY_MESSAGE);
+        }
+        jobs.put(job.getId(), job);
+        latestJobs.put(slot, job);
+        return job;
+    }
+
+    /**
+     * Retrieves a report job.
+     *
+     * @param id The identifier of the job.
+     * @return The report job.
+     * @throws ResourceNotFoundException Thrown if the job is unknown or expired.
+     */
+    public ReportJob getJob(String id) {
+        ReportJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException(String.format(ErrorMessage.REPORT_JOB_NOT_FOUND_MESSAGE, id));
+        }
+        return job;
+    }
+
+    /**
+     * Retrieves the file of a finished report job.
+     *
+     * @param id The identifier of the job.
+     * @return The report job, whose file exists.
+     * @throws ResourceNotFoundException Thrown if the job is unknown or expired.
+     * @throws BadRequestException       Thrown if the report is not generated yet or its generation failed.
+     */
+    public ReportJob getFinishedJob(String id) {
+        ReportJob job = getJob(id);
+        if (job.getStatus() != ReportJobStatus.DONE) {
+            throw new BadRequestException(String.format(ErrorMessage.REPORT_JOB_NOT_FINISHED_MESSAGE, id));
+        }
+        if (!Files.exists(job.getFile())) {
+            throw new ResourceNotFoundException(String.format(ErrorMessage.REPORT_JOB_NOT_FOUND_MESSAGE, id));
+        }
+        return job;
+    }
+
+    /**
+     * Forgets finished jobs once their result has been kept for the configured time and deletes their files.
+     * The latest report of every type and format is kept while it is the current one.
+     */
+    @Scheduled(fixedDelayString = "${rentacar.report.job.cleanupDelayMs:60000}")
+    public synchronized void expireFinishedJobs() {
+        long expiredBefore = System.currentTimeMillis() - resultTtlMs;
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getUpdatedAt() >= expiredBefore || latestJobs.containsValue(job)) {
+                return false;
+            }
+            deleteFile(job);
+            return true;
+        });
+    }
+
+    private void generate(ReportJob job) {
+        job.running();
+        Path temp = rootPath.resolve(job.getId() + ".tmp");
+        Path file = rootPath.resolve(job.getId() + "." + job.getFormat().getExtension());
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                reportService.writeReport(job.getType(), job.getFormat(), out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            job.done(file);
+            logger.info("Report {} {} generated for data version {}", job.getType(), job.getFormat(), job.getVersion());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Report job {} failed : {}", job.getId(), e.getMessage());
+            job.failed(ErrorMessage.EXCEL_REPORT_ERROR_MESSAGE);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException deleteException) {
+                logger.warn("Report file {} could not be deleted : {}", temp, deleteException.getMessage());
+            }
+        }
+    }
+
+    private void deleteFile(ReportJob job) {
+        if (job.getFile() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(job.getFile());
+        } catch (IOException e) {
+            logger.warn("Report file {} could not be deleted : {}", job.getFile(), e.getMessage());
+        }
+    }
+}
@@ -3,14 +3,22 @@ package com.example.rentacar.service;
 import com.example.rentacar.domain.Car;
 import com.example.rentacar.domain.Reservation;
 import com.example.rentacar.domain.User;
-import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.report.ClearingIterator;
 import com.example.rentacar.report.ExcellReporter;
+import com.example.rentacar.report.ReportFormat;
+import com.example.rentacar.report.ReportType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.ByteArrayInputStream;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
 import java.io.IOException;
-import java.util.List;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
 
 @Service
 public class ReportService {
@@ -24,51 +32,117 @@ public class ReportService {
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    //SXSSF penceresi: bellekte tutulan satir sayisi
+    @Value("${rentacar.report.rowWindow:100}")
+    private int rowWindow;
+
+    //persistence context bu kadar satirda bir temizlenir
+    @Value("${rentacar.report.clearEvery:1000}")
+    private int clearEvery;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        //postgres cursor (fetch size) sadece acik bir transaction icinde calisir
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
-     * Generates an Excel report for user data and returns it as a ByteArrayInputStream.
+     * Writes the report for user data to the given stream in the requested format.
+     * Users are read from a database cursor, so memory use does not depend on the number of users.
      *
-     * @return ByteArrayInputStream containing the Excel report for user data.
-     * @throws RuntimeException Thrown if an error occurs during Excel report generation.
+     * @param format The report format.
+     * @param out    The stream the report is written to.
+     * @throws IOException Thrown if the report can't be written, e.g. because the client disconnected.
      */
-    public ByteArrayInputStream getUserReport() {
-
-        List<User> users=userService.getUsers();
-
-        try {
-            return ExcellReporter.getUserExcelReport(users);
-        } catch (IOException e) {
-            throw new RuntimeException(ErrorMessage.EXCEL_REPORT_ERROR_MESSAGE);
-        }
+    public void writeUserReport(ReportFormat format, OutputStream out) throws IOException {
+        inReadOnlyTransaction(() -> {
+            try (Stream<User> users = userService.streamUsers()) {
+                format.newWriter(rowWindow).write(ExcellReporter.USER_ROWS, clearing(users), out);
+            }
+        });
     }
 
     /**
-     * Generates an Excel report for car data and returns it as a ByteArrayInputStream.
+     * Writes the report for car data to the given stream in the requested format.
+     * Cars are read from a database cursor, so memory use does not depend on the number of cars.
      *
-     * @return ByteArrayInputStream containing the Excel report for car data.
-     * @throws RuntimeException Thrown if an error occurs during Excel report generation.
+     * @param format The report format.
+     * @param out    The stream the report is written to.
+     * @throws IOException Thrown if the report can't be written, e.g. because the client disconnected.
      */
-    public ByteArrayInputStream getCarReport() {
-        List<Car>cars=carService.getAllCar();
+    public void writeCarReport(ReportFormat format, OutputStream out) throws IOException {
+        inReadOnlyTransaction(() -> {
+            try (Stream<Car> cars = carService.streamAllCars()) {
+                format.newWriter(rowWindow).write(ExcellReporter.CAR_ROWS, clearing(cars), out);
+            }
+        });
+    }
 
-        try {
-            return ExcellReporter.getCarExcelReport(cars);
-        } catch (IOException e) {
-            throw new RuntimeException(ErrorMessage.EXCEL_REPORT_ERROR_MESSAGE);
-        }
+    /**
+     * Writes the report for reservation data to the given stream in the requested format.
+     * Reservations are read from a database cursor, so memory use does not depend on the number of reservations.
+     *
+     * @param format The report format.
+     * @param out    The stream the report is written to.
+     * @throws IOException Thrown if the report can't be written, e.g. because the client disconnected.
+     */
+    public void writeReservationReport(ReportFormat format, OutputStream out) throws IOException {
+        inReadOnlyTransaction(() -> {
+            try (Stream<Reservation> reservations = reservationService.streamAll()) {
+                format.newWriter(rowWindow).write(ExcellReporter.RESERVATION_ROWS, clearing(reservations), out);
+            }
+        });
     }
 
     /**
-     * Generates an Excel report for reservation data and returns it as a ByteArrayInputStream.
+     * Writes the given report to the given stream in the requested format.
      *
-     * @return ByteArrayInputStream containing the Excel report for reservation data.
-     * @throws RuntimeException Thrown if an error occurs during Excel report generation.
+     * @param type   The report.
+     * @param format The report format.
+     * @param out    The stream the report is written to.
+     * @throws IOException Thrown if the report can't be written.
      */
-    public ByteArrayInputStream getReservationReport() {
-        List<Reservation>reservations=reservationService.getAll();
+    public void writeReport(ReportType type, ReportFormat format, OutputStream out) throws IOException {
+        switch (type) {
+            case USERS:
+                writeUserReport(format, out);
+                break;
+            case CARS:
+                writeCarReport(format, out);
+                break;
+            default:
+                writeReservationReport(format, out);
+        }
+    }
+
+    private <T> ClearingIterator<T> clearing(Stream<T> rows) {
+        return new ClearingIterator<>(rows.iterator(), entityManager, clearEvery);
+    }
+
+    private void inReadOnlyTransaction(ReportCall call) throws IOException {
         try {
-            return ExcellReporter.getReservationExcelReport(reservations);
-        } catch (IOException e) {
-            throw new RuntimeException(ErrorMessage.EXCEL_REPORT_ERROR_MESSAGE);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    call.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
+
+    private interface ReportCall {
+        void run() throws IOException;
+    }
 }
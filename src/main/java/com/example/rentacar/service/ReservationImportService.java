@@ -0,0 +1,295 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.availability.CarTimeline;
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.enums.ReservationStatus;
+import com.example.rentacar.dto.ReservationImportError;
+import com.example.rentacar.dto.ReservationImportReport;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.imports.CsvReservationRowReader;
+import com.example.rentacar.imports.ImportedIntervals;
+import com.example.rentacar.imports.NdjsonReservationRowReader;
+import com.example.rentacar.imports.ReservationImportRow;
+import com.example.rentacar.imports.ReservationRowReader;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.report.ReportType;
+import com.example.rentacar.repository.CarRepository;
+import com.example.rentacar.repository.ReservationRepository;
+import com.example.rentacar.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class ReservationImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationImportService.class);
+
+    private static final String INSERT_RESERVATION_SQL = "insert into t_reservation (car_id, user_id, pick_up_time, " +
+            "drop_off_time, pick_up_location, drop_off_location, status, total_price) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_LOCATION_LENGTH = 150;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ReportDataVersion reportDataVersion;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private CarCalendarService carCalendarService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${rentacar.reservation.import.chunkSize:1000}")
+    private int chunkSize;
+
+    @Value("${rentacar.reservation.import.maxReportedErrors:1000}")
+    private int maxReportedErrors;
+
+    /**
+     * Imports reservations from a CSV or NDJSON stream.
+     * Rows are read one at a time, checked against the existing active reservations of their car and against the rows
+     * accepted before them, and written with JDBC batch inserts in chunks. When a chunk is rejected by the database
+     * its rows are retried one by one, so only the faulty rows fail.
+     * Past reservations are accepted, since the import is meant for migrating existing bookings.
+     *
+     * @param inputStream The uploaded rows.
+     * @param format      The format of the rows, csv or ndjson.
+     * @return The import report with the errors of the rejected rows.
+     * @throws BadRequestException Thrown if the format is not supported or the input can't be read.
+     */
+    public ReservationImportReport importReservations(InputStream inputStream, String format) {
+        ReservationImportReport report = new ReservationImportReport();
+        ImportContext context = new ImportContext();
+
+        try (ReservationRowReader reader = createReader(inputStream, format)) {
+            List<ReservationImportRow> chunk = new ArrayList<>(chunkSize);
+            ReservationImportRow row;
+            while ((row = reader.next()) != null) {
+                report.setTotalRows(report.getTotalRows() + 1);
+                String error = accept(row, context);
+                if (error != null) {
+                    addError(report, row.getRowNumber(), error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    flush(chunk, context, report);
+                }
+            }
+            flush(chunk, context, report);
+        } catch (IOException e) {
+            logger.error("Reservation import stopped after {} rows : {}", report.getTotalRows(), e.getMessage());
+            throw new BadRequestException(ErrorMessage.IMPORT_READ_ERROR_MESSAGE);
+        } finally {
+            if (report.getImportedRows() > 0) {
+                if (availabilityIndex.isReady()) {
+                    availabilityIndex.reload();
+                }
+                carCalendarService.evictAll();
+            }
+        }
+        logger.info("Reservation import done : {} rows, {} imported, {} failed",
+                report.getTotalRows(), report.getImportedRows(), report.getFailedRows());
+        return report;
+    }
+
+    private ReservationRowReader createReader(InputStream inputStream, String format) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        if ("csv".equalsIgnoreCase(format)) {
+            return new CsvReservationRowReader(reader);
+        }
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return new NdjsonReservationRowReader(reader, objectMapper);
+        }
+        throw new BadRequestException(String.format(ErrorMessage.IMPORT_FORMAT_NOT_SUPPORTED_MESSAGE, format));
+    }
+
+    /**
+     * Validates a row and reserves its period in the import context.
+     *
+     * @return null if the row is accepted, otherwise the reason why it is rejected.
+     */
+    private String accept(ReservationImportRow row, ImportContext context) {
+        if (row.getError() != null) {
+            return row.getError();
+        }
+        if (row.getCarId() == null || row.getUserId() == null || row.getPickUpTime() == null
+                || row.getDropOffTime() == null || row.getPickUpLocation() == null || row.getDropOffLocation() == null) {
+            return ErrorMessage.IMPORT_ROW_INCOMPLETE_MESSAGE;
+        }
+        if (!row.getPickUpTime().isBefore(row.getDropOffTime())) {
+            return ErrorMessage.RESERVATION_TIME_INCORRECT_MESSAGE;
+        }
+        if (row.getPickUpLocation().length() > MAX_LOCATION_LENGTH || row.getDropOffLocation().length() > MAX_LOCATION_LENGTH) {
+            return ErrorMessage.IMPORT_LOCATION_TOO_LONG_MESSAGE;
+        }
+        ReservationStatus status;
+        try {
+            status = row.getStatus() == null ? ReservationStatus.CREATED : ReservationStatus.valueOf(row.getStatus());
+        } catch (IllegalArgumentException e) {
+            return String.format(ErrorMessage.IMPORT_STATUS_INCORRECT_MESSAGE, row.getStatus());
+        }
+        row.setStatus(status.name());
+
+        Car car = context.getCar(row.getCarId());
+        if (car == null) {
+            return String.format(ErrorMessage.CAR_ID_NOT_FOUND_MESSAGE, row.getCarId());
+        }
+        if (!context.userExists(row.getUserId())) {
+            return String.format(ErrorMessage.USER_ID_NOT_FOUND_MESSAGE, row.getUserId());
+        }
+
+        if (ReservationAvailabilityIndex.isActive(status)) {
+            long start = ReservationAvailabilityIndex.toEpochSecond(row.getPickUpTime());
+            long end = ReservationAvailabilityIndex.toEpochSecond(row.getDropOffTime());
+            if (context.getTimeline(car.getId()).overlaps(start, end, CarTimeline.NO_EXCLUSION)
+                    || context.importedIntervals.overlaps(car.getId(), start, end)) {
+                return ErrorMessage.CAR_NOT_AVAILABLE_MESSAGE;
+            }
+            context.importedIntervals.add(car.getId(), start, end);
+        }
+        if (row.getTotalPrice() == null) {
+            row.setTotalPrice(reservationService.getTotalPrice(car, row.getPickUpTime(), row.getDropOffTime()));
+        }
+        return null;
+    }
+
+    /**
+     * Writes the chunk with one JDBC batch in its own transaction. If the database rejects the batch,
+     * the transaction is rolled back and the rows are inserted one by one to find the faulty ones.
+     */
+    private void flush(List<ReservationImportRow> chunk, ImportContext context, ReservationImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_RESERVATION_SQL, chunk, chunk.size(), this::setValues));
+            report.setImportedRows(report.getImportedRows() + chunk.size());
+        } catch (DataAccessException e) {
+            logger.warn("Reservation import chunk rejected, retrying its {} rows one by one : {}",
+                    chunk.size(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            for (ReservationImportRow row : chunk) {
+                try {
+                    jdbcTemplate.update(INSERT_RESERVATION_SQL, ps -> setValues(ps, row));
+                    report.setImportedRows(report.getImportedRows() + 1);
+                } catch (DataAccessException rowException) {
+                    //yalnizca aktif satirlarin araligi eklenmisti
+                    if (ReservationAvailabilityIndex.isActive(ReservationStatus.valueOf(row.getStatus()))) {
+                        context.importedIntervals.remove(row.getCarId(),
+                                ReservationAvailabilityIndex.toEpochSecond(row.getPickUpTime()));
+                    }
+                    addError(report, row.getRowNumber(),
+                            NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+        reportDataVersion.changed(ReportType.RESERVATIONS);
+        chunk.clear();
+    }
+
+    private void setValues(PreparedStatement ps, ReservationImportRow row) throws SQLException {
+        ps.setLong(1, row.getCarId());
+        ps.setLong(2, row.getUserId());
+        ps.setTimestamp(3, Timestamp.valueOf(row.getPickUpTime()));
+        ps.setTimestamp(4, Timestamp.valueOf(row.getDropOffTime()));
+        ps.setString(5, row.getPickUpLocation());
+        ps.setString(6, row.getDropOffLocation());
+        ps.setString(7, row.getStatus());
+        ps.setDouble(8, row.getTotalPrice());
+    }
+
+    private void addError(ReservationImportReport report, long rowNumber, String message) {
+        report.setFailedRows(report.getFailedRows() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ReservationImportError(rowNumber, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * Per-import lookups, loaded lazily for the cars and users that appear in the upload.
+     */
+    private class ImportContext {
+
+        private final Map<Long, Optional<Car>> cars = new HashMap<>();
+
+        private final Set<Long> knownUsers = new HashSet<>();
+
+        private final Set<Long> unknownUsers = new HashSet<>();
+
+        private final Map<Long, CarTimeline> timelines = new HashMap<>();
+
+        private final ImportedIntervals importedIntervals = new ImportedIntervals();
+
+        private Car getCar(Long carId) {
+            return cars.computeIfAbsent(carId, id -> carRepository.findById(id)).orElse(null);
+        }
+
+        private boolean userExists(Long userId) {
+            if (knownUsers.contains(userId)) {
+                return true;
+            }
+            if (unknownUsers.contains(userId)) {
+                return false;
+            }
+            boolean exists = userRepository.existsById(userId);
+            (exists ? knownUsers : unknownUsers).add(userId);
+            return exists;
+        }
+
+        private CarTimeline getTimeline(Long carId) {
+            return timelines.computeIfAbsent(carId, id -> availabilityIndex.isReady()
+                    ? availabilityIndex.getTimeline(id)
+                    : CarTimeline.of(reservationRepository.findAllActivePeriodsByCar(id,
+                    ReservationAvailabilityIndex.INACTIVE_STATUSES)));
+        }
+    }
+}
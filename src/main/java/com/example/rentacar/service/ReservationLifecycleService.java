@@ -0,0 +1,164 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.availability.ReservationPeriod;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.report.ReportType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves CREATED reservations whose drop-off time has passed to DONE.
+ * Every chunk is one short transaction that locks its rows with SKIP LOCKED, so rows being edited by a user are
+ * left for the next run, and the chunks walk the expired rows in (drop_off_time, id) order.
+ */
+@Service
+public class ReservationLifecycleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationLifecycleService.class);
+
+    private static final String COMPLETE_EXPIRED_SQL = "with expired as (" +
+            "select id from t_reservation where status = 'CREATED' and drop_off_time < ? " +
+            "and (drop_off_time, id) > (?, ?) order by drop_off_time, id limit ? for update skip locked) " +
+            "update t_reservation r set status = 'DONE' from expired where r.id = expired.id " +
+            "returning r.id, r.car_id, r.pick_up_time, r.drop_off_time";
+
+    private static final String OLDEST_EXPIRED_SQL =
+            "select min(drop_off_time) from t_reservation where status = 'CREATED' and drop_off_time < ?";
+
+    //keyset start, before any drop-off time
+    private static final LocalDateTime KEYSET_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private CarCalendarService carCalendarService;
+
+    @Autowired
+    private ReportDataVersion reportDataVersion;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rentacar.reservation.lifecycle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rentacar.reservation.lifecycle.chunkSize:500}")
+    private int chunkSize;
+
+    @Value("${rentacar.reservation.lifecycle.lockTimeoutMs:2000}")
+    private long lockTimeoutMs;
+
+    private Counter completedCounter;
+
+    private Counter failedRunCounter;
+
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @PostConstruct
+    public void registerMetrics() {
+        completedCounter = Counter.builder("rentacar.reservation.lifecycle.completed")
+                .description("Reservations moved to DONE by the lifecycle job")
+                .register(meterRegistry);
+        failedRunCounter = Counter.builder("rentacar.reservation.lifecycle.failed.runs")
+                .description("Lifecycle job runs stopped by a database error, e.g. a lock timeout")
+                .register(meterRegistry);
+        Gauge.builder("rentacar.reservation.lifecycle.lag", lagSeconds, AtomicLong::get)
+                .description("Seconds since the drop-off time of the oldest expired reservation still CREATED")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Completes the expired reservations in chunks, then refreshes the lag metric.
+     */
+    @Scheduled(fixedDelayString = "${rentacar.reservation.lifecycle.fixedDelayMs:60000}",
+            initialDelayString = "${rentacar.reservation.lifecycle.initialDelayMs:60000}")
+    public void completeExpiredReservations() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lastDropOffTime = KEYSET_START;
+        long lastId = 0;
+        long completed = 0;
+        try {
+            while (true) {
+                List<ReservationPeriod> chunk = completeChunk(now, lastDropOffTime, lastId);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                completed += chunk.size();
+                completedCounter.increment(chunk.size());
+                Set<Long> carIds = new HashSet<>();
+                for (ReservationPeriod period : chunk) {
+                    availabilityIndex.remove(period.getReservationId());
+                    carIds.add(period.getCarId());
+                    //RETURNING has no order, the keyset moves to the greatest (drop_off_time, id) of the chunk
+                    int compare = period.getDropOffTime().compareTo(lastDropOffTime);
+                    if (compare > 0 || (compare == 0 && period.getReservationId() > lastId)) {
+                        lastDropOffTime = period.getDropOffTime();
+                        lastId = period.getReservationId();
+                    }
+                }
+                carIds.forEach(carCalendarService::evict);
+                reportDataVersion.changed(ReportType.RESERVATIONS);
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+            refreshLag(now);
+        } catch (DataAccessException e) {
+            failedRunCounter.increment();
+            logger.warn("Reservation lifecycle run stopped after {} reservations : {}",
+                    completed, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+        if (completed > 0) {
+            logger.info("Reservation lifecycle run moved {} reservations to DONE", completed);
+        }
+    }
+
+    private List<ReservationPeriod> completeChunk(LocalDateTime now, LocalDateTime lastDropOffTime, long lastId) {
+        return transactionTemplate.execute(status -> {
+            //SET LOCAL does not take bind parameters, the value is a configured number
+            jdbcTemplate.execute("set local lock_timeout = " + lockTimeoutMs);
+            return jdbcTemplate.query(COMPLETE_EXPIRED_SQL,
+                    (rs, rowNum) -> new ReservationPeriod(rs.getLong("id"), rs.getLong("car_id"),
+                            rs.getTimestamp("pick_up_time").toLocalDateTime(),
+                            rs.getTimestamp("drop_off_time").toLocalDateTime()),
+                    Timestamp.valueOf(now), Timestamp.valueOf(lastDropOffTime), lastId, chunkSize);
+        });
+    }
+
+    private void refreshLag(LocalDateTime now) {
+        Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_EXPIRED_SQL, Timestamp.class, Timestamp.valueOf(now));
+        lagSeconds.set(oldest == null ? 0 : Duration.between(oldest.toLocalDateTime(), LocalDateTime.now()).getSeconds());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.availability.CarTimeline;
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.availability.ReservationPeriod;
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.dto.QuoteDTO;
+import com.example.rentacar.dto.request.QuoteRequest;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.message.ErrorMessage;
+import com.example.rentacar.repository.CarRepository;
+import com.example.rentacar.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class ReservationQuoteService {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Value("${rentacar.reservation.quote.maxBatchSize:200}")
+    private int maxBatchSize;
+
+    /**
+     * Computes availability and total price for a batch of (car, pick-up, drop-off) tuples.
+     * All cars of the batch are loaded with one query and the overlaps are resolved either with one pass over
+     * the availability index or, when the index is not loaded, with one query covering every car of the batch.
+     * Invalid tuples do not fail the batch, they are answered with a message instead.
+     *
+     * @param quoteRequests The tuples to quote.
+     * @return The quotes, in the same order as the requests.
+     * @throws BadRequestException Thrown if the batch contains more tuples than allowed.
+     */
+    public List<QuoteDTO> getQuotes(List<QuoteRequest> quoteRequests) {
+        if (quoteRequests.size() > maxBatchSize) {
+            throw new BadRequestException(String.format(ErrorMessage.QUOTE_BATCH_TOO_LARGE_MESSAGE, maxBatchSize));
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        List<QuoteRequest> validRequests = new ArrayList<>();
+        for (QuoteRequest quoteRequest : quoteRequests) {
+            if (isTimeCorrect(quoteRequest, now)) {
+                validRequests.add(quoteRequest);
+            }
+        }
+        Set<Long> carIds = validRequests.stream().map(QuoteRequest::getCarId).collect(Collectors.toSet());
+
+        Map<Long, Car> cars = new HashMap<>();
+        if (!carIds.isEmpty()) {
+            carRepository.findAllById(carIds).forEach(car -> cars.put(car.getId(), car));
+        }
+        Map<Long, CarTimeline> timelines = loadTimelines(cars.keySet(), validRequests);
+
+        List<QuoteDTO> quotes = new ArrayList<>(quoteRequests.size());
+        for (QuoteRequest quoteRequest : quoteRequests) {
+            quotes.add(quote(quoteRequest, now, cars, timelines));
+        }
+        return quotes;
+    }
+
+    private QuoteDTO quote(QuoteRequest quoteRequest, LocalDateTime now, Map<Long, Car> cars, Map<Long, CarTimeline> timelines) {
+        QuoteDTO quoteDTO = new QuoteDTO(quoteRequest.getCarId(), quoteRequest.getPickUpTime(),
+                quoteRequest.getDropOffTime(), false, null, null);
+
+        if (!isTimeCorrect(quoteRequest, now)) {
+            quoteDTO.setMessage(ErrorMessage.RESERVATION_TIME_INCORRECT_MESSAGE);
+            return quoteDTO;
+        }
+        Car car = cars.get(quoteRequest.getCarId());
+        if (car == null) {
+            quoteDTO.setMessage(String.format(ErrorMessage.CAR_ID_NOT_FOUND_MESSAGE, quoteRequest.getCarId()));
+            return quoteDTO;
+        }
+        CarTimeline timeline = timelines.get(car.getId());
+        boolean available = !timeline.overlaps(ReservationAvailabilityIndex.toEpochSecond(quoteRequest.getPickUpTime()),
+                ReservationAvailabilityIndex.toEpochSecond(quoteRequest.getDropOffTime()), CarTimeline.NO_EXCLUSION);
+
+        quoteDTO.setAvailable(available);
+        quoteDTO.setTotalPrice(reservationService.getTotalPrice(car, quoteRequest.getPickUpTime(), quoteRequest.getDropOffTime()));
+        return quoteDTO;
+    }
+
+    /**
+     * Retrieves the timelines of the given cars, from the availability index when it is loaded,
+     * otherwise with a single query restricted to the time span of the batch.
+     */
+    private Map<Long, CarTimeline> loadTimelines(Set<Long> carIds, List<QuoteRequest> validRequests) {
+        Map<Long, CarTimeline> timelines = new HashMap<>();
+        if (carIds.isEmpty()) {
+            return timelines;
+        }
+        if (availabilityIndex.isReady()) {
+            for (Long carId : carIds) {
+                timelines.put(carId, availabilityIndex.getTimeline(carId));
+            }
+            return timelines;
+        }
+        LocalDateTime from = validRequests.stream().map(QuoteRequest::getPickUpTime).min(LocalDateTime::compareTo).get();
+        LocalDateTime to = validRequests.stream().map(QuoteRequest::getDropOffTime).max(LocalDateTime::compareTo).get();
+
+        Map<Long, List<ReservationPeriod>> periodsByCar = reservationRepository
+                .findActivePeriodsByCars(new HashSet<>(carIds), from, to, ReservationAvailabilityIndex.INACTIVE_STATUSES)
+                .stream().collect(Collectors.groupingBy(ReservationPeriod::getCarId));
+
+        for (Long carId : carIds) {
+            timelines.put(carId, CarTimeline.of(periodsByCar.getOrDefault(carId, Collections.emptyList())));
+        }
+        return timelines;
+    }
+
+    private boolean isTimeCorrect(QuoteRequest quoteRequest, LocalDateTime now) {
+        return !quoteRequest.getPickUpTime().isBefore(now)
+                && quoteRequest.getPickUpTime().isBefore(quoteRequest.getDropOffTime());
+    }
+}
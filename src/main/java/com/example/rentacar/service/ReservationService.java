@@ -1,5 +1,7 @@
 package com.example.rentacar.service;
 
+import com.example.rentacar.availability.CarReservationLock;
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
 import com.example.rentacar.domain.Car;
 import com.example.rentacar.domain.Reservation;
 import com.example.rentacar.domain.User;
@@ -8,40 +10,96 @@ import com.example.rentacar.dto.ReservationDTO;
 import com.example.rentacar.dto.request.ReservationRequest;
 import com.example.rentacar.dto.request.ReservationUpdateRequest;
 import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.exception.ConflictException;
 import com.example.rentacar.exception.ResourceNotFoundException;
 import com.example.rentacar.exception.message.ErrorMessage;
 import com.example.rentacar.mapper.ReservationMapper;
+import com.example.rentacar.pricing.CompiledPricing;
+import com.example.rentacar.pricing.PricingEngine;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.report.ReportType;
 import com.example.rentacar.repository.ReservationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class ReservationService {
 
+    //PostgreSQL exclusion_violation, raised by the ex_reservation_car_period constraint
+    private static final String EXCLUSION_VIOLATION_SQL_STATE = "23P01";
+
     @Autowired
     private ReservationRepository reservationRepository;
 
     @Autowired
     private ReservationMapper reservationMapper;
 
+    @Autowired
+    private ReportDataVersion reportDataVersion;
+
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private CarReservationLock carReservationLock;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CarCalendarService carCalendarService;
+
+    @Autowired
+    private PricingEngine pricingEngine;
+
     /**
      * Creates a new reservation based on the provided reservation request, user, and car.
      *
      * @param reservationRequest The reservation request containing details of the reservation.
      * @param user               The user making the reservation.
      * @param car                The car for which the reservation is being made.
+     * @return The saved reservation.
      * @throws BadRequestException Thrown if the reservation time is incorrect or the car is not available.
+     * @throws ConflictException   Thrown if the database rejects the reservation because it overlaps another one.
      */
-    public void createReservation(ReservationRequest reservationRequest, User user, Car car) {
+    public Reservation createReservation(ReservationRequest reservationRequest, User user, Car car) {
         checkReservationTimeIsCorrect(reservationRequest.getPickUpTime(), reservationRequest.getDropOffTime());
 
+        //ayni arac icin check-then-insert seri, farkli araclar paralel calisir
+        return carReservationLock.callLocked(car.getId(), () -> {
+            Reservation reservation = transactionTemplate.execute(status -> {
+                carReservationLock.lockInDatabase(car.getId());
+                return saveNewReservation(reservationRequest, user, car);
+            });
+            availabilityIndex.update(reservation);
+            carCalendarService.evict(car.getId());
+            return reservation;
+        });
+    }
+
+    /**
+     * Checks the availability of the car and saves the new reservation.
+     * Must be called while holding the lock of the car.
+     *
+     * @param reservationRequest The reservation request containing details of the reservation.
+     * @param user               The user making the reservation.
+     * @param car                The car for which the reservation is being made.
+     * @return The saved reservation.
+     * @throws BadRequestException Thrown if the car is not available.
+     * @throws ConflictException   Thrown if the database rejects the reservation because it overlaps another one.
+     */
+    private Reservation saveNewReservation(ReservationRequest reservationRequest, User user, Car car) {
         boolean carStatus = checkCarAvailability(car, reservationRequest.getPickUpTime(), reservationRequest.getDropOffTime());
 
         Reservation reservation = reservationMapper.reservationRequestToReservation(reservationRequest);
@@ -55,7 +113,8 @@ public class ReservationService {
         reservation.setUser(user);
         Double totalPrice = getTotalPrice(car, reservationRequest.getPickUpTime(), reservationRequest.getDropOffTime());
         reservation.setTotalPrice(totalPrice);
-        reservationRepository.save(reservation);
+        saveReservation(reservation);
+        return reservation;
     }
 
     /**
@@ -89,12 +148,38 @@ public class ReservationService {
      */
     public boolean checkCarAvailability(Car car, LocalDateTime pickUpTime, LocalDateTime dropOffTime) {
 
-        List<Reservation> existReservations = getConflictReservations(car, pickUpTime, dropOffTime);
-        return existReservations.isEmpty();
+        return isCarAvailable(car, pickUpTime, dropOffTime, null);
+    }
+
+    /**
+     * Checks if the specified car is available during the provided time range, ignoring the given reservation.
+     * The in-memory availability index answers when it is loaded, otherwise the database is queried.
+     *
+     * @param car           The car to be checked for availability.
+     * @param pickUpTime    The pick-up time for the reservation.
+     * @param dropOffTime   The drop-off time for the reservation.
+     * @param reservationId The reservation to ignore (e.g. the one being updated), may be null.
+     * @return true if the car is available, false otherwise.
+     * @throws BadRequestException if the pick-up time is after the drop-off time.
+     */
+    private boolean isCarAvailable(Car car, LocalDateTime pickUpTime, LocalDateTime dropOffTime, Long reservationId) {
+        if (availabilityIndex.isReady()) {
+            if (pickUpTime.isAfter(dropOffTime)) {
+                throw new BadRequestException(ErrorMessage.RESERVATION_TIME_INCORRECT_MESSAGE);
+            }
+            return availabilityIndex.isAvailable(car.getId(), pickUpTime, dropOffTime, reservationId);
+        }
+        List<Reservation> conflictReservations = getConflictReservations(car, pickUpTime, dropOffTime);
+        if (conflictReservations.isEmpty()) {
+            return true;
+        }
+        return reservationId != null && conflictReservations.size() == 1 &&
+                conflictReservations.get(0).getId().equals(reservationId);
     }
 
     /**
      * Calculates the total price for reserving the specified car during the provided time range.
+     * The price is computed in minor units by the pricing engine, which applies the active pricing rules.
      *
      * @param car          The car for which the total price is calculated.
      * @param pickUpTime   The pick-up time for the reservation.
@@ -102,9 +187,8 @@ public class ReservationService {
      * @return The total price for reserving the car during the specified time range.
      */
     public Double getTotalPrice(Car car, LocalDateTime pickUpTime, LocalDateTime dropOffTime) {
-        Long minutes = ChronoUnit.MINUTES.between(pickUpTime, dropOffTime);
-        double hours = Math.ceil(minutes / 60.0);
-        return car.getPricePerHour() * hours;
+        long totalPrice = pricingEngine.quote(car, pickUpTime, dropOffTime);
+        return CompiledPricing.toMajor(totalPrice);
     }
 
     /**
@@ -120,13 +204,45 @@ public class ReservationService {
         if (pickUpTime.isAfter(dropOffTime)) {
             throw new BadRequestException(ErrorMessage.RESERVATION_TIME_INCORRECT_MESSAGE);
         }
-        ReservationStatus[] status = {ReservationStatus.CANCELED, ReservationStatus.DONE};
-
-        List<Reservation> existReservations = reservationRepository.checkCarStatus(car.getId(), pickUpTime, dropOffTime, status);
+        List<Reservation> existReservations = reservationRepository.checkCarStatus(car.getId(), pickUpTime, dropOffTime);
 
         return existReservations;
     }
 
+    /**
+     * Saves a reservation and flushes it, so the overlap constraint of t_reservation is evaluated immediately.
+     *
+     * @param reservation The reservation to be saved.
+     * @throws ConflictException if the reservation overlaps another active reservation of the same car.
+     */
+    private void saveReservation(Reservation reservation) {
+        try {
+            reservationRepository.saveAndFlush(reservation);
+            reportDataVersion.changed(ReportType.RESERVATIONS);
+        } catch (DataIntegrityViolationException e) {
+            if (isExclusionViolation(e)) {
+                throw new ConflictException(ErrorMessage.CAR_NOT_AVAILABLE_MESSAGE);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if the given exception was caused by the reservation overlap (exclusion) constraint.
+     *
+     * @param e The exception thrown by the repository.
+     * @return true if one of the causes carries the exclusion_violation SQL state.
+     */
+    private static boolean isExclusionViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException &&
+                    EXCLUSION_VIOLATION_SQL_STATE.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Retrieves a list of all reservations in the system.
      *
@@ -175,9 +291,38 @@ public class ReservationService {
      * @param reservationUpdateRequest  The request containing the updated reservation details.
      * @throws BadRequestException if the reservation status is CANCELED or DONE, or if the new status is CREATED and
      *                             the reservation time conflicts with existing reservations for the car.
+     * @throws ConflictException   if the database rejects the update because it overlaps another reservation.
      */
     public void updateReservation(Long reservationId, Car car, ReservationUpdateRequest reservationUpdateRequest) {
-        Reservation reservation = getById(reservationId);
+        AtomicReference<Long> previousCarId = new AtomicReference<>();
+        carReservationLock.callLocked(car.getId(), () -> {
+            Reservation reservation = transactionTemplate.execute(status -> {
+                carReservationLock.lockInDatabase(car.getId());
+                return saveUpdatedReservation(reservationId, car, reservationUpdateRequest, previousCarId);
+            });
+            availabilityIndex.update(reservation);
+            carCalendarService.evict(previousCarId.get());
+            carCalendarService.evict(reservation.getCar().getId());
+            return reservation;
+        });
+    }
+
+    /**
+     * Applies the update request to the reservation and saves it.
+     * Must be called while holding the lock of the car. The reservation row is locked before its status is checked,
+     * so a reservation completed by the lifecycle job in the meantime is not saved back as CREATED.
+     *
+     * @param reservationId             The ID of the reservation to be updated.
+     * @param car                       The car associated with the reservation.
+     * @param reservationUpdateRequest  The request containing the updated reservation details.
+     * @param previousCarId             Receives the car the reservation belonged to before the update.
+     * @return The saved reservation.
+     */
+    private Reservation saveUpdatedReservation(Long reservationId, Car car, ReservationUpdateRequest reservationUpdateRequest,
+                                               AtomicReference<Long> previousCarId) {
+        Reservation reservation = reservationRepository.findByIdForUpdate(reservationId).orElseThrow(() -> new
+                ResourceNotFoundException(String.format(ErrorMessage.RESOURCE_NOT_FOUND_MESSAGE, reservationId)));
+        previousCarId.set(reservation.getCar().getId());
 
         if (reservation.getStatus().equals(ReservationStatus.CANCELED) || reservation.getStatus().equals(ReservationStatus.DONE)) {
             throw new BadRequestException(ErrorMessage.RESERVATION_STATUS_CANT_CHANGE_MESSAGE);
@@ -185,12 +330,10 @@ public class ReservationService {
         if (reservationUpdateRequest.getStatus() != null &&
                 reservationUpdateRequest.getStatus() == ReservationStatus.CREATED) {
             checkReservationTimeIsCorrect(reservationUpdateRequest.getPickUpTime(), reservationUpdateRequest.getDropOffTime());
-            List<Reservation> conflictReservations = getConflictReservations(car, reservationUpdateRequest.getPickUpTime(),
-                    reservationUpdateRequest.getDropOffTime());
-            if (!conflictReservations.isEmpty()) {
-                if (!(conflictReservations.size() == 1 && conflictReservations.get(0).getId().equals(reservationId))) {
-                    throw new BadRequestException(ErrorMessage.CAR_NOT_AVAILABLE_MESSAGE);
-                }
+            boolean carStatus = isCarAvailable(car, reservationUpdateRequest.getPickUpTime(),
+                    reservationUpdateRequest.getDropOffTime(), reservationId);
+            if (!carStatus) {
+                throw new BadRequestException(ErrorMessage.CAR_NOT_AVAILABLE_MESSAGE);
             }
             Double totalPrice = getTotalPrice(car, reservationUpdateRequest.getPickUpTime(), reservationUpdateRequest.getDropOffTime());
             //bakılacak
@@ -203,8 +346,8 @@ public class ReservationService {
         reservation.setDropOffLocation(reservationUpdateRequest.getDropOffLocation());
         reservation.setStatus(reservationUpdateRequest.getStatus());
 
-        reservationRepository.save(reservation);
-
+        saveReservation(reservation);
+        return reservation;
     }
 
     /**
@@ -268,12 +411,12 @@ public class ReservationService {
      * @throws ResourceNotFoundException if the reservation with the specified ID is not found.
      */
     public void removeById(Long id) {
-        boolean exists = reservationRepository.existsById(id);
+        Reservation reservation = getById(id);
 
-        if (!exists){
-            throw new ResourceNotFoundException(String.format(ErrorMessage.RESOURCE_NOT_FOUND_MESSAGE,id));
-        }
-        reservationRepository.deleteById(id);
+        reservationRepository.delete(reservation);
+        reportDataVersion.changed(ReportType.RESERVATIONS);
+        availabilityIndex.remove(id);
+        carCalendarService.evict(reservation.getCar().getId());
     }
 
     /**
@@ -297,11 +440,12 @@ public class ReservationService {
     }
 
     /**
-     * Retrieves a list of all reservations.
+     * Streams all reservations in id order from a database cursor, together with their car and user, for reports.
+     * The stream must be consumed inside a transaction and closed by the caller.
      *
-     * @return List of Reservation entities.
+     * @return Stream of Reservation entities.
      */
-    public List<Reservation> getAll() {
-        return reservationRepository.findAllBy();
+    public Stream<Reservation> streamAll() {
+        return reservationRepository.streamAllBy();
     }
 }
@@ -13,6 +13,8 @@ import com.example.rentacar.exception.ConflictException;
 import com.example.rentacar.exception.ResourceNotFoundException;
 import com.example.rentacar.exception.message.ErrorMessage;
 import com.example.rentacar.mapper.UserMapper;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.report.ReportType;
 import com.example.rentacar.repository.UserRepository;
 import com.example.rentacar.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +29,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -41,14 +44,18 @@ public class UserService {
 
     private ReservationService reservationService;
 
+    private ReportDataVersion reportDataVersion;
+
     @Autowired
     public UserService(UserRepository userRepository, RoleService roleService, @Lazy PasswordEncoder passwordEncoder,
-                       UserMapper userMapper, ReservationService reservationService) {
+                       UserMapper userMapper, ReservationService reservationService,
+                       ReportDataVersion reportDataVersion) {
         this.userRepository = userRepository;
         this.roleService = roleService;
         this.passwordEncoder = passwordEncoder;
         this.userMapper = userMapper;
         this.reservationService = reservationService;
+        this.reportDataVersion = reportDataVersion;
     }
 
     /**
@@ -94,6 +101,7 @@ public class UserService {
         user.setRoles(roles);
 
         userRepository.save(user);
+        reportDataVersion.changed(ReportType.USERS);
 
     }
 
@@ -194,6 +202,7 @@ public class UserService {
         String hashedPassword = passwordEncoder.encode(updatePasswordRequest.getNewPassword());
         user.setPassword(hashedPassword);
         userRepository.save(user);
+        reportDataVersion.changed(ReportType.USERS);
 
     }
 
@@ -221,6 +230,7 @@ public class UserService {
                 userUpdateRequest.getEmail(),
                 userUpdateRequest.getAddress(),
                 userUpdateRequest.getZipCode());
+        reportDataVersion.changed(ReportType.USERS);
 
     }
 
@@ -263,6 +273,7 @@ public class UserService {
         user.setRoles(roles);
 
         userRepository.save(user);
+        reportDataVersion.changed(ReportType.USERS);
 
     }
 
@@ -324,15 +335,17 @@ public class UserService {
         }
 
         userRepository.deleteById(id);
+        reportDataVersion.changed(ReportType.USERS);
 
     }
 
     /**
-     * Retrieves a list of all users.
+     * Streams all users in id order from a database cursor, for reports.
+     * The stream must be consumed inside a transaction and closed by the caller.
      *
-     * @return List of all users.
+     * @return Stream of all users.
      */
-    public List<User> getUsers() {
-        return userRepository.findAll();
+    public Stream<User> streamUsers() {
+        return userRepository.streamAllBy();
     }
 }
@@ -0,0 +1,156 @@
+package com.example.rentacar.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stores blobs as files named after their hash under {@code rentacar.image.storage.root},
+ * fanned out in two directory levels (ab/cd/abcd...) to keep directories small.
+ * Files are streamed to a temporary file first, hashed on the way, and moved in place,
+ * so readers never see a partial blob and an upload never has to fit in memory.
+ */
+@Component
+@ConditionalOnProperty(name = "rentacar.image.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemImageStorage implements ImageStorage {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Value("${rentacar.image.storage.root:image-store}")
+    private String root;
+
+    private Path rootPath;
+
+    private Path tempPath;
+
+    @PostConstruct
+    public void init() throws IOException {
+        rootPath = Paths.get(root).toAbsolutePath().normalize();
+        tempPath = rootPath.resolve("tmp");
+        Files.createDirectories(tempPath);
+    }
+
+    @Override
+    public String store(byte[] data) throws IOException {
+        StagedBlob blob = stage(new ByteArrayInputStream(data));
+        try {
+            commit(blob);
+        } finally {
+            discard(blob);
+        }
+        return blob.getHash();
+    }
+
+    @Override
+    public StagedBlob stage(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(tempPath, "upload", ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            long length = new DigestInputStream(in, digest).transferTo(out);
+            return new StagedBlob(toHex(digest.digest()), length, temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public void commit(StagedBlob blob) throws IOException {
+        Path target = pathOf(blob.getHash());
+        if (!Files.exists(target)) {
+            moveInPlace(blob.getTempFile(), target);
+        }
+    }
+
+    @Override
+    public void discard(StagedBlob blob) {
+        try {
+            Files.deleteIfExists(blob.getTempFile());
+        } catch (IOException e) {
+            //tmp klasoru sonradan temizlenebilir
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(pathOf(hash));
+    }
+
+    @Override
+    public Resource getResource(String hash) throws IOException {
+        Path path = pathOf(hash);
+        if (!Files.isRegularFile(path)) {
+            throw new FileNotFoundException(path.toString());
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public byte[] read(String hash) throws IOException {
+        return Files.readAllBytes(pathOf(hash));
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(pathOf(hash));
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(pathOf(hash));
+    }
+
+    /**
+     * Moves a fully written temporary file to its content path. If another upload of the same content
+     * got there first, the existing file is kept since it holds the same bytes.
+     */
+    void moveInPlace(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            //ayni icerik zaten yazilmis
+        }
+    }
+
+    Path pathOf(String hash) {
+        if (hash == null || !hash.matches("[0-9a-f]{64}")) {
+            throw new IllegalArgumentException("Not a SHA-256 hash : " + hash);
+        }
+        return rootPath.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.rentacar.storage;
+
+import com.example.rentacar.domain.ImageFile;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Immutable snapshot of an image as served by the image endpoints: its metadata and, for images small enough
+ * to be cached, its bytes. {@link #getData()} is null when the bytes have to be read from the storage.
+ */
+@Getter
+public class ImageContent {
+
+    private final String id;
+
+    private final String name;
+
+    private final String type;
+
+    private final long length;
+
+    private final String hash;
+
+    //read-only, callers must use duplicate() before reading so the position is never shared
+    private final ByteBuffer data;
+
+    public ImageContent(ImageFile imageFile, ByteBuffer data) {
+        this.id = imageFile.getId();
+        this.name = imageFile.getName();
+        this.type = imageFile.getType();
+        this.length = imageFile.getLength();
+        this.hash = imageFile.getHash();
+        this.data = data == null ? null : data.asReadOnlyBuffer();
+    }
+
+    /**
+     * Strong entity tag of the image. Legacy images have no hash yet, their id is just as stable
+     * since image content never changes.
+     *
+     * @return The quoted entity tag.
+     */
+    public String getETag() {
+        return "\"" + (hash == null ? id : hash) + "\"";
+    }
+}
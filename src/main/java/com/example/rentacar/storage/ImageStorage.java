@@ -0,0 +1,85 @@
+package com.example.rentacar.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Content-addressed storage of image bytes. Blobs are identified by the lowercase hex SHA-256 of their content,
+ * so storing the same bytes twice keeps a single copy.
+ */
+public interface ImageStorage {
+
+    /**
+     * Stores the given bytes unless a blob with the same content already exists.
+     *
+     * @param data The image bytes.
+     * @return The SHA-256 hash identifying the blob.
+     * @throws IOException Thrown if the blob can't be written.
+     */
+    String store(byte[] data) throws IOException;
+
+    /**
+     * Streams content to the staging area while its SHA-256 is computed, with a fixed-size buffer.
+     *
+     * @param in The content, read to its end but not closed.
+     * @return The staged blob with its hash and length.
+     * @throws IOException Thrown if the content can't be read or written.
+     */
+    StagedBlob stage(InputStream in) throws IOException;
+
+    /**
+     * Makes a staged blob available under its hash. If a blob with the same hash exists already,
+     * it is kept and the staged copy is dropped.
+     *
+     * @param blob The staged blob.
+     * @throws IOException Thrown if the blob can't be moved in place.
+     */
+    void commit(StagedBlob blob) throws IOException;
+
+    /**
+     * Drops whatever is left of a staged blob. Safe to call after {@link #commit}.
+     *
+     * @param blob The staged blob.
+     */
+    void discard(StagedBlob blob);
+
+    /**
+     * Opens a stored blob for reading. The caller must close the stream.
+     *
+     * @param hash The hash of the blob.
+     * @return A stream over the blob content.
+     * @throws IOException Thrown if the blob does not exist or can't be read.
+     */
+    InputStream open(String hash) throws IOException;
+
+    /**
+     * Returns a resource over a stored blob. Reading it streams the content; it is never loaded as a whole,
+     * which lets responses serve it (or byte ranges of it) with a fixed-size buffer.
+     *
+     * @param hash The hash of the blob.
+     * @return The resource of the blob.
+     * @throws IOException Thrown if the blob does not exist.
+     */
+    Resource getResource(String hash) throws IOException;
+
+    /**
+     * Reads a whole stored blob.
+     *
+     * @param hash The hash of the blob.
+     * @return The blob content.
+     * @throws IOException Thrown if the blob does not exist or can't be read.
+     */
+    byte[] read(String hash) throws IOException;
+
+    boolean exists(String hash);
+
+    /**
+     * Deletes a blob. Callers must make sure no image still refers to it.
+     *
+     * @param hash The hash of the blob.
+     * @throws IOException Thrown if the blob can't be deleted.
+     */
+    void delete(String hash) throws IOException;
+}
@@ -0,0 +1,21 @@
+package com.example.rentacar.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Content written to the storage's staging area, whose hash is known but which is not visible under its hash yet.
+ * It must be passed to {@link ImageStorage#commit} or {@link ImageStorage#discard}.
+ */
+@Getter
+@AllArgsConstructor
+public class StagedBlob {
+
+    private final String hash;
+
+    private final long length;
+
+    private final Path tempFile;
+}
@@ -0,0 +1,34 @@
+-- Executed after Hibernate has created/updated the tables (spring.jpa.defer-datasource-initialization).
+-- Statements are separated with ';;' so that the DO blocks can contain plain semicolons.
+
+-- btree_gist lets the scalar car_id column take part in a GiST exclusion constraint
+CREATE EXTENSION IF NOT EXISTS btree_gist;;
+
+-- closed range, touching reservations are treated as overlapping like the previous between-based check
+ALTER TABLE t_reservation
+    ADD COLUMN IF NOT EXISTS period tsrange
+        GENERATED ALWAYS AS (tsrange(pick_up_time, drop_off_time, '[]')) STORED;;
+
+-- one car can't have two overlapping active reservations, the constraint's GiST index also serves the && probe
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'ex_reservation_car_period') THEN
+        ALTER TABLE t_reservation
+            ADD CONSTRAINT ex_reservation_car_period
+                EXCLUDE USING gist (car_id WITH =, period WITH &&)
+                WHERE (status NOT IN ('CANCELED', 'DONE'));
+    END IF;
+EXCEPTION
+    WHEN exclusion_violation THEN
+        RAISE WARNING 'ex_reservation_car_period not created, t_reservation contains overlapping active reservations';
+END
+$$;;
+
+-- expired CREATED reservations are walked in (drop_off_time, id) order by the lifecycle job
+CREATE INDEX IF NOT EXISTS ix_reservation_created_drop_off
+    ON t_reservation (drop_off_time, id) WHERE status = 'CREATED';;
+
+-- revenue and utilization analytics find the billable (not canceled) reservations overlapping a range or month,
+-- the exclusion constraint's index can't serve them because it leaves out DONE reservations
+CREATE INDEX IF NOT EXISTS ix_reservation_billable_period
+    ON t_reservation USING gist (period, car_id) WHERE status <> 'CANCELED';;
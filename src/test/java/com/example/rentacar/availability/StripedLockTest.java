@@ -0,0 +1,54 @@
+package com.example.rentacar.availability;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedLockTest {
+
+    @Test
+    void differentStripesDoNotBlockEachOther() throws Exception {
+        StripedLock stripedLock = new StripedLock(16);
+        long firstCar = 1;
+        long secondCar = 2;
+        while (stripedLock.stripeOf(secondCar) == stripedLock.stripeOf(firstCar)) {
+            secondCar++;
+        }
+        long otherCar = secondCar;
+
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> first = executor.submit(() -> stripedLock.callLocked(firstCar, () -> {
+                firstLocked.countDown();
+                try {
+                    return secondDone.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }));
+
+            assertThat(firstLocked.await(5, TimeUnit.SECONDS)).isTrue();
+            stripedLock.runLocked(otherCar, secondDone::countDown);
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void stripeCountIsRoundedUpToPowerOfTwo() {
+        assertThat(new StripedLock(100).getStripeCount()).isEqualTo(128);
+        assertThat(new StripedLock(1).getStripeCount()).isEqualTo(1);
+    }
+}
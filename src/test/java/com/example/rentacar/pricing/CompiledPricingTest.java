@@ -0,0 +1,76 @@
+package com.example.rentacar.pricing;
+
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompiledPricingTest {
+
+    //2030-03-04 is a Monday
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 3, 4, 10, 0);
+
+    @Test
+    void withoutRulesPriceIsRateTimesStartedHours() {
+        CompiledPricing pricing = CompiledPricing.compile(new PricingRules());
+
+        assertEquals(3 * 1250, quote(pricing, 1250, MONDAY, MONDAY.plusMinutes(121)));
+        assertEquals(1250, quote(pricing, 1250, MONDAY, MONDAY.plusMinutes(60)));
+    }
+
+    @Test
+    void weekendHoursAreSurcharged() {
+        PricingRules rules = new PricingRules();
+        rules.setWeekendSurchargePercent(50);
+        CompiledPricing pricing = CompiledPricing.compile(rules);
+
+        //Friday 22:00 to Saturday 02:00 : 2 weekday hours and 2 weekend hours
+        LocalDateTime friday = MONDAY.plusDays(4).withHour(22);
+        assertEquals(2 * 1000 + 2 * 1500, quote(pricing, 1000, friday, friday.plusHours(4)));
+    }
+
+    @Test
+    void seasonsWrapAroundTheNewYear() {
+        PricingRules rules = new PricingRules();
+        rules.setSeasons(Collections.singletonList(new SeasonRate(MonthDay.of(12, 31), MonthDay.of(1, 1), 20)));
+        CompiledPricing pricing = CompiledPricing.compile(rules);
+
+        LocalDateTime newYearsEve = LocalDateTime.of(2030, 12, 31, 23, 0);
+        LocalDateTime second = LocalDateTime.of(2031, 1, 2, 0, 0);
+        assertEquals(1200, quote(pricing, 1000, newYearsEve, newYearsEve.plusHours(1)));
+        assertEquals(1000, quote(pricing, 1000, second, second.plusHours(1)));
+    }
+
+    @Test
+    void longestMatchingDurationTierAndModelPriceApply() {
+        PricingRules rules = new PricingRules();
+        rules.setDurationTiers(Arrays.asList(new DurationTier(48, 20), new DurationTier(24, 10)));
+        rules.getModelPricePerHour().put("Model X", 20.0);
+        CompiledPricing pricing = CompiledPricing.compile(rules);
+
+        long pickUp = ReservationAvailabilityIndex.toEpochSecond(MONDAY);
+        assertEquals(23 * 1000, pricing.quote("Other", 1000, pickUp, pickUp + 23 * 3600));
+        assertEquals(24 * 1000 * 90 / 100, pricing.quote("Other", 1000, pickUp, pickUp + 24 * 3600));
+        assertEquals(48 * 2000 * 80 / 100, pricing.quote("Model X", 1000, pickUp, pickUp + 48 * 3600));
+    }
+
+    @Test
+    void duplicateDurationTiersAreRejected() {
+        PricingRules rules = new PricingRules();
+        rules.setDurationTiers(Arrays.asList(new DurationTier(24, 10), new DurationTier(24, 20)));
+
+        assertThrows(BadRequestException.class, () -> CompiledPricing.compile(rules));
+    }
+
+    private static long quote(CompiledPricing pricing, long rate, LocalDateTime pickUp, LocalDateTime dropOff) {
+        return pricing.quote(null, rate, ReservationAvailabilityIndex.toEpochSecond(pickUp),
+                ReservationAvailabilityIndex.toEpochSecond(dropOff));
+    }
+}
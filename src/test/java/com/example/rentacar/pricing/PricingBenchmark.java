@@ -0,0 +1,91 @@
+package com.example.rentacar.pricing;
+
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.domain.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.MonthDay;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quote latency of the compiled pricing rules, with every rule kind active.
+ * Not part of the test run; start it with
+ * {@code mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt} and
+ * {@code java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.rentacar.pricing.PricingBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    //rental length, the quote walks the rental day by day
+    @Param({"3", "30"})
+    private int days;
+
+    private CompiledPricing pricing;
+
+    private PricingEngine engine;
+
+    private Car car;
+
+    private long pickUpSecond;
+
+    private long dropOffSecond;
+
+    private LocalDateTime pickUpTime;
+
+    private LocalDateTime dropOffTime;
+
+    @Setup
+    public void setUp() {
+        PricingRules rules = new PricingRules();
+        rules.setWeekendSurchargePercent(25);
+        rules.setSeasons(Arrays.asList(new SeasonRate(MonthDay.of(6, 1), MonthDay.of(8, 31), 30),
+                new SeasonRate(MonthDay.of(12, 20), MonthDay.of(1, 5), 50)));
+        rules.setDurationTiers(Arrays.asList(new DurationTier(168, 20), new DurationTier(72, 10), new DurationTier(24, 5)));
+        rules.getModelPricePerHour().put("Model X", 42.5);
+        pricing = CompiledPricing.compile(rules);
+
+        engine = new PricingEngine();
+        engine.apply(rules);
+        car = new Car(1L, "Model X", 4, 5, 2, "Manual", true, 3, 20.0, "Diesel", false, new HashSet<>());
+
+        pickUpTime = LocalDateTime.of(2030, 7, 26, 10, 30);
+        dropOffTime = pickUpTime.plusDays(days).plusMinutes(17);
+        pickUpSecond = ReservationAvailabilityIndex.toEpochSecond(pickUpTime);
+        dropOffSecond = ReservationAvailabilityIndex.toEpochSecond(dropOffTime);
+    }
+
+    @Benchmark
+    public long compiledQuote() {
+        return pricing.quote("Model X", 2000, pickUpSecond, dropOffSecond);
+    }
+
+    @Benchmark
+    public long engineQuote() {
+        return engine.quote(car, pickUpTime, dropOffTime);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PricingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
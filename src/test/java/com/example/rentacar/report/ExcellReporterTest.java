@@ -0,0 +1,85 @@
+package com.example.rentacar.report;
+
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.Reservation;
+import com.example.rentacar.domain.User;
+import com.example.rentacar.domain.enums.ReservationStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs with the -Xmx of the surefire configuration in pom.xml: a report kept in heap would not fit.
+ */
+class ExcellReporterTest {
+
+    private static final int RESERVATIONS = 1_000_000;
+
+    @Test
+    void millionReservationsAreWrittenWithBoundedHeap() throws Exception {
+        SyntheticReservations reservations = new SyntheticReservations(RESERVATIONS);
+        CountingOutputStream out = new CountingOutputStream();
+
+        new ExcelReportWriter(100).write(ExcellReporter.RESERVATION_ROWS, reservations, out);
+
+        assertEquals(RESERVATIONS, reservations.produced);
+        assertTrue(out.count > RESERVATIONS, "report is smaller than one byte per row");
+    }
+
+    //satirlari ihtiyac aninda uretir, hicbiri saklanmaz
+    private static class SyntheticReservations implements Iterator<Reservation> {
+
+        private final int total;
+
+        private final Car car = new Car(1L, "Model", 4, 5, 2, "Manual", true, 3, 10.0, "Diesel", false, new HashSet<>());
+
+        private final User user = new User(1L, "First", "Last", "a@b.com", "password", "(555) 555-5555",
+                "Address", "12345", false, new HashSet<>());
+
+        private final LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+        private int produced;
+
+        SyntheticReservations(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return produced < total;
+        }
+
+        @Override
+        public Reservation next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            produced++;
+            LocalDateTime pickUp = start.plusHours(produced);
+            return new Reservation((long) produced, car, user, pickUp, pickUp.plusHours(3),
+                    "Pick up location", "Drop off location", ReservationStatus.CREATED, 30.0);
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
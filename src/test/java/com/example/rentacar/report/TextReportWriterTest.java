@@ -0,0 +1,60 @@
+package com.example.rentacar.report;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextReportWriterTest {
+
+    private static final ReportRowProducer<String[]> ROWS = new ReportRowProducer<String[]>() {
+        @Override
+        public String getName() {
+            return "Rows";
+        }
+
+        @Override
+        public String[] getHeaders() {
+            return new String[]{"id", "Name", "Price"};
+        }
+
+        @Override
+        public void produce(String[] item, RowSink row) {
+            row.cell(Long.parseLong(item[0]));
+            row.cell(item[1]);
+            row.cell(Double.parseDouble(item[2]));
+        }
+    };
+
+    private static final List<String[]> ITEMS = Arrays.asList(
+            new String[]{"1", "plain", "10.5"},
+            new String[]{"2", "say \"hi\", then\nleave", "3.0"},
+            new String[]{"3", "", "0.0"});
+
+    @Test
+    void csvQuotesOnlyWhenNeeded() throws Exception {
+        assertEquals("id,Name,Price\r\n" +
+                        "1,plain,10.5\r\n" +
+                        "2,\"say \"\"hi\"\", then\nleave\",3.0\r\n" +
+                        "3,,0.0\r\n",
+                write(new CsvReportWriter()));
+    }
+
+    @Test
+    void ndjsonWritesOneEscapedObjectPerRow() throws Exception {
+        assertEquals("{\"id\":1,\"Name\":\"plain\",\"Price\":10.5}\n" +
+                        "{\"id\":2,\"Name\":\"say \\\"hi\\\", then\\nleave\",\"Price\":3.0}\n" +
+                        "{\"id\":3,\"Name\":\"\",\"Price\":0.0}\n",
+                write(new NdjsonReportWriter()));
+    }
+
+    private String write(ReportWriter writer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(ROWS, ITEMS.iterator(), out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.rentacar.repository;
+
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.ImageData;
+import com.example.rentacar.domain.ImageFile;
+import com.example.rentacar.dto.ImageFileMetadata;
+import com.example.rentacar.mapper.CarMapper;
+import com.example.rentacar.mapper.ReservationMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "com.example.rentacar.repository.ImageFileMetadataTest$RecordingInspector"
+})
+class ImageFileMetadataTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ImageFileRepository imageFileRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    private Long carId;
+
+    @BeforeEach
+    void setUp() {
+        ImageFile legacy = new ImageFile("legacy.jpg", "image/jpeg", new ImageData(new byte[]{1, 2, 3}));
+        ImageFile stored = new ImageFile("stored.jpg", "image/jpeg", 3, "ab".repeat(32));
+        entityManager.persist(legacy);
+        entityManager.persist(stored);
+
+        Set<ImageFile> images = new HashSet<>();
+        images.add(legacy);
+        images.add(stored);
+        Car car = new Car(null, "Model", 4, 5, 2, "Manual", true, 3, 10.0, "Diesel", false, images);
+        carId = entityManager.persist(car).getId();
+
+        entityManager.flush();
+        entityManager.clear();
+        RecordingInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void metadataQueryDoesNotReadImageData() {
+        List<ImageFileMetadata> metadata = imageFileRepository.findAllMetadata();
+
+        assertEquals(2, metadata.size());
+        assertNoImageDataSelect();
+    }
+
+    @Test
+    void mappingCarImagesDoesNotReadImageData() {
+        Car car = carRepository.findCarById(carId).orElseThrow();
+
+        assertEquals(2, CarMapper.getImageIds(car.getImage()).size());
+        assertNoImageDataSelect();
+    }
+
+    @Test
+    void mappingLazyCarImagesDoesNotReadImageData() {
+        //rezervasyon uzerinden gelen arac, image koleksiyonu entity graph olmadan yuklenir
+        Car car = entityManager.find(Car.class, carId);
+
+        assertEquals(2, ReservationMapper.getImageIds(car.getImage()).size());
+        assertNoImageDataSelect();
+    }
+
+    private void assertNoImageDataSelect() {
+        assertFalse(RecordingInspector.STATEMENTS.isEmpty());
+        for (String sql : RecordingInspector.STATEMENTS) {
+            assertFalse(sql.toLowerCase().contains("t_imagedata"), sql);
+        }
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.domain.ImageFile;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.storage.ImageContent;
+import com.example.rentacar.storage.ImageStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImageRenditionServiceTest {
+
+    private ImageRenditionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ImageRenditionService();
+        ReflectionTestUtils.setField(service, "maxDimension", 2048);
+        ReflectionTestUtils.setField(service, "sizes",
+                service.parseBreakpoints(Arrays.asList("320x240", " 640x480", "1280x960")));
+    }
+
+    @Test
+    void requestedSizesSnapToTheSmallestBreakpointContainingThem() {
+        assertArrayEquals(new int[]{320, 240}, service.snap(100, 100));
+        assertArrayEquals(new int[]{640, 480}, service.snap(321, 10));
+        //a missing dimension takes the box of the breakpoint, like the pregenerated renditions
+        assertArrayEquals(new int[]{1280, 960}, service.snap(700, null));
+        assertArrayEquals(new int[]{640, 480}, service.snap(null, 241));
+        //larger than every breakpoint
+        assertArrayEquals(new int[]{1280, 960}, service.snap(2048, 2048));
+    }
+
+    @Test
+    void widthOnlyRequestIsServedByPregeneratedRendition(@TempDir Path root) throws Exception {
+        ImageStorage imageStorage = mock(ImageStorage.class);
+        when(imageStorage.open("hash")).thenAnswer(invocation -> new ByteArrayInputStream(png(800, 600)));
+        ReflectionTestUtils.setField(service, "imageStorage", imageStorage);
+        ReflectionTestUtils.setField(service, "root", root.toString());
+        ReflectionTestUtils.setField(service, "breakpoints", Arrays.asList("320x240", "640x480", "1280x960"));
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 8);
+        ReflectionTestUtils.setField(service, "timeoutMs", 10000L);
+        ReflectionTestUtils.setField(service, "maxSourcePixels", 40_000_000L);
+        ReflectionTestUtils.setField(service, "maxStoreBytes", 1L << 30);
+        service.init();
+        try {
+            service.pregenerate("hash", "image/png");
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (countFiles(root) < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(3, countFiles(root));
+
+            ImageContent image = new ImageContent(new ImageFile("car.png", "image/png", 1000, "hash"), null);
+            Path rendition = service.getRendition(image, 200, null);
+
+            assertEquals(root.resolve("hash_320x240.png"), rendition);
+            //served from disk, the source was only read by pregenerate
+            verify(imageStorage, times(3)).open("hash");
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    void invalidRequestedSizeIsRejected() {
+        assertThrows(BadRequestException.class, () -> service.snap(0, 100));
+        assertThrows(BadRequestException.class, () -> service.snap(100, 4096));
+    }
+
+    private static long countFiles(Path root) throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("hash_")).count();
+        }
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void malformedBreakpointFailsTheConfiguration() {
+        assertThrows(IllegalStateException.class, () -> service.parseBreakpoints(List.of("320x240", "640")));
+        assertThrows(IllegalStateException.class, () -> service.parseBreakpoints(List.of("axb")));
+        assertThrows(IllegalStateException.class, () -> service.parseBreakpoints(List.of("0x10")));
+        assertThrows(IllegalStateException.class, () -> service.parseBreakpoints(List.of("")));
+    }
+}
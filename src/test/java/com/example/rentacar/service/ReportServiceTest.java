@@ -0,0 +1,165 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.Reservation;
+import com.example.rentacar.domain.Role;
+import com.example.rentacar.domain.User;
+import com.example.rentacar.domain.enums.ReservationStatus;
+import com.example.rentacar.domain.enums.RoleType;
+import com.example.rentacar.report.ReportFormat;
+import com.example.rentacar.repository.CarRepository;
+import com.example.rentacar.repository.ReservationRepository;
+import com.example.rentacar.repository.RoleRepository;
+import com.example.rentacar.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams every report through {@link ReportService} with a persistence context cleared every 2 rows,
+ * so each report crosses several clears. The rows are committed before the report runs, like in production,
+ * so lazy associations are really loaded from the cursor's session.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "rentacar.report.clearEvery=2"
+})
+@Import(ReportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReportServiceTest {
+
+    private static final int ROWS = 7;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private CarService carService;
+
+    @MockBean
+    private ReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        when(userService.streamUsers()).thenAnswer(invocation -> userRepository.streamAllBy());
+        when(carService.streamAllCars()).thenAnswer(invocation -> carRepository.streamAllBy());
+        when(reservationService.streamAll()).thenAnswer(invocation -> reservationRepository.streamAllBy());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Role customer = roleRepository.save(new Role(null, RoleType.ROLE_CUSTOMER));
+            Role admin = roleRepository.save(new Role(null, RoleType.ROLE_ADMIN));
+            LocalDateTime pickUpTime = LocalDateTime.of(2030, 1, 1, 10, 0);
+            for (int i = 0; i < ROWS; i++) {
+                Set<Role> roles = new HashSet<>();
+                roles.add(customer);
+                if (i % 2 == 0) {
+                    roles.add(admin);
+                }
+                User user = userRepository.save(new User(null, "First" + i, "Last" + i, "user" + i + "@mail.com",
+                        "password", "(555) 555-5555", "Address", "12345", false, roles));
+                Car car = carRepository.save(new Car(null, "Model" + i, 4, 5, 2, "Manual", true, 3, 10.0,
+                        "Diesel", false, new HashSet<>()));
+                reservationRepository.save(new Reservation(null, car, user, pickUpTime.plusDays(i),
+                        pickUpTime.plusDays(i).plusHours(5), "Pick up", "Drop off", ReservationStatus.CREATED, 50.0));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll();
+        carRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void userReportReadsRolesOfEveryUser() throws IOException {
+        String[] lines = report(out -> reportService.writeUserReport(ReportFormat.CSV, out));
+
+        assertEquals(ROWS + 1, lines.length);
+        for (int i = 0; i < ROWS; i++) {
+            String line = lines[i + 1];
+            assertTrue(line.contains("user" + i + "@mail.com"), line);
+            assertTrue(line.contains("Customer"), line);
+            assertEquals(i % 2 == 0, line.contains("Administrator"), line);
+        }
+    }
+
+    @Test
+    void carReportWritesEveryCar() throws IOException {
+        String[] lines = report(out -> reportService.writeCarReport(ReportFormat.NDJSON, out));
+
+        assertEquals(ROWS, lines.length);
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(lines[i].contains("Model" + i), lines[i]);
+        }
+    }
+
+    @Test
+    void reservationReportWritesCarAndCustomerOfEveryReservation() throws IOException {
+        String[] lines = report(out -> reportService.writeReservationReport(ReportFormat.CSV, out));
+
+        assertEquals(ROWS + 1, lines.length);
+        for (int i = 0; i < ROWS; i++) {
+            assertTrue(lines[i + 1].contains("Model" + i), lines[i + 1]);
+            assertTrue(lines[i + 1].contains("First" + i + " Last" + i), lines[i + 1]);
+        }
+    }
+
+    @Test
+    void excelReportCrossesClears() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reportService.writeUserReport(ReportFormat.XLSX, out);
+
+        assertTrue(out.size() > 0);
+    }
+
+    private String[] report(ReportCall call) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        call.write(out);
+        return out.toString(StandardCharsets.UTF_8).split("\r?\n");
+    }
+
+    private interface ReportCall {
+        void write(ByteArrayOutputStream out) throws IOException;
+    }
+}
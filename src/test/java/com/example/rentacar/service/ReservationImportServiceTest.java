@@ -0,0 +1,129 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.availability.CarTimeline;
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.dto.ReservationImportReport;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.repository.CarRepository;
+import com.example.rentacar.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs with the -Xmx of the surefire configuration in pom.xml: every accepted row keeps its period in the
+ * import context, so the per-row cost of that bookkeeping decides whether a million rows fit.
+ * The database is mocked, rows are only checked and batched.
+ */
+class ReservationImportServiceTest {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int CARS = 100;
+
+    @Test
+    void millionRowsAreImportedWithBoundedHeap() {
+        ReservationImportService service = new ReservationImportService();
+        CarRepository carRepository = mock(CarRepository.class);
+        when(carRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(new Car(invocation.getArgument(0),
+                "Model", 4, 5, 2, "Manual", true, 3, 10.0, "Diesel", false, new HashSet<>())));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.existsById(anyLong())).thenReturn(true);
+        ReservationAvailabilityIndex availabilityIndex = mock(ReservationAvailabilityIndex.class);
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.getTimeline(anyLong())).thenReturn(CarTimeline.of(Collections.emptyList()));
+
+        ReflectionTestUtils.setField(service, "carRepository", carRepository);
+        ReflectionTestUtils.setField(service, "userRepository", userRepository);
+        ReflectionTestUtils.setField(service, "availabilityIndex", availabilityIndex);
+        ReflectionTestUtils.setField(service, "carCalendarService", mock(CarCalendarService.class));
+        ReflectionTestUtils.setField(service, "reportDataVersion", new ReportDataVersion());
+        ReflectionTestUtils.setField(service, "jdbcTemplate", mock(JdbcTemplate.class));
+        ReflectionTestUtils.setField(service, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "chunkSize", 1000);
+        ReflectionTestUtils.setField(service, "maxReportedErrors", 1000);
+
+        ReservationImportReport report = service.importReservations(new SyntheticCsv(ROWS), "csv");
+
+        assertEquals(ROWS, report.getTotalRows());
+        assertEquals(ROWS, report.getImportedRows());
+        assertEquals(0, report.getFailedRows());
+    }
+
+    //satirlari ihtiyac aninda uretir, her araca birbirine degmeyen ROWS / CARS aktif rezervasyon
+    private static class SyntheticCsv extends InputStream {
+
+        private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
+
+        private final int total;
+
+        private final LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+        private int produced = -1;
+
+        private byte[] line = new byte[0];
+
+        private int position;
+
+        SyntheticCsv(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return line[position++];
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, line.length - position);
+            System.arraycopy(line, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        private boolean fill() {
+            if (position < line.length) {
+                return true;
+            }
+            if (produced >= total) {
+                return false;
+            }
+            String text;
+            if (produced < 0) {
+                text = "carId,userId,pickUpTime,dropOffTime,pickUpLocation,dropOffLocation,status,totalPrice\n";
+            } else {
+                LocalDateTime pickUp = start.plusHours(produced / CARS);
+                text = (produced % CARS + 1) + ",1," + pickUp.format(FORMATTER) + "," +
+                        pickUp.plusMinutes(30).format(FORMATTER) + ",Pick up,Drop off,CREATED,10.0\n";
+            }
+            produced++;
+            line = text.getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.rentacar.service;
+
+import com.example.rentacar.availability.CarReservationLock;
+import com.example.rentacar.availability.ReservationAvailabilityIndex;
+import com.example.rentacar.domain.Car;
+import com.example.rentacar.domain.Reservation;
+import com.example.rentacar.domain.Role;
+import com.example.rentacar.domain.User;
+import com.example.rentacar.domain.enums.ReservationStatus;
+import com.example.rentacar.dto.request.ReservationRequest;
+import com.example.rentacar.dto.request.ReservationUpdateRequest;
+import com.example.rentacar.exception.BadRequestException;
+import com.example.rentacar.mapper.ReservationMapperImpl;
+import com.example.rentacar.pricing.PricingEngine;
+import com.example.rentacar.report.ReportDataVersion;
+import com.example.rentacar.repository.CarRepository;
+import com.example.rentacar.repository.ReservationRepository;
+import com.example.rentacar.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Books the same few cars from many threads through {@link ReservationService#createReservation} in local-lock mode
+ * and checks the stored rows: the check-then-insert must be serialized per car, since H2 has no exclusion
+ * constraint to catch an overlap the service let through.
+ * Also checks that an update racing the lifecycle job does not save a completed reservation back as CREATED.
+ * The database fallback of the availability check uses tsrange and only runs on PostgreSQL.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "rentacar.reservation.distributedLock=false"
+})
+@Import({ReservationService.class, CarReservationLock.class, ReservationAvailabilityIndex.class,
+        PricingEngine.class, ReportDataVersion.class, ReservationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationServiceConcurrencyTest {
+
+    private static final int CARS = 5;
+
+    //raise with -Drentacar.test.bookings=50000 for a longer run
+    private static final int BOOKINGS = Integer.getInteger("rentacar.test.bookings", 5_000);
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationAvailabilityIndex availabilityIndex;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private CarCalendarService carCalendarService;
+
+    @MockBean
+    private ObjectMapper objectMapper;
+
+    private final List<Car> cars = new ArrayList<>();
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        //Reservation maps car and user as @OneToOne, for which Hibernate generates unique keys
+        for (String constraint : jdbcTemplate.queryForList("select constraint_name from information_schema.table_constraints " +
+                "where table_name = 'T_RESERVATION' and constraint_type = 'UNIQUE'", String.class)) {
+            jdbcTemplate.execute("alter table t_reservation drop constraint " + constraint);
+        }
+        user = userRepository.save(new User(null, "First", "Last", "user@mail.com", "password",
+                "(555) 555-5555", "Address", "12345", false, new HashSet<Role>()));
+        for (int i = 0; i < CARS; i++) {
+            cars.add(carRepository.save(new Car(null, "Model" + i, 4, 5, 2, "Manual", true, 3, 10.0,
+                    "Diesel", false, new HashSet<>())));
+        }
+        availabilityIndex.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll();
+        carRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void parallelBookingsNeverOverlap() throws Exception {
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withNano(0);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < BOOKINGS; i++) {
+                Random random = new Random(i);
+                Car car = cars.get(random.nextInt(CARS));
+                //the window grows with the bookings, so about the same share of them is accepted
+                LocalDateTime pickUpTime = base.plusMinutes(random.nextInt(BOOKINGS * 5));
+                LocalDateTime dropOffTime = pickUpTime.plusMinutes(random.nextInt(240) + 1);
+                ReservationRequest request = new ReservationRequest(pickUpTime, dropOffTime, "Pick up", "Drop off");
+
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        reservationService.createReservation(request, user, car);
+                        accepted.incrementAndGet();
+                    } catch (BadRequestException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Reservation> stored = reservationRepository.findAll();
+        assertThat(stored).hasSize(accepted.get());
+        assertThat(accepted.get()).isPositive();
+        assertThat(rejected.get()).isPositive();
+
+        Map<Long, List<Reservation>> byCar = stored.stream()
+                .collect(Collectors.groupingBy(reservation -> reservation.getCar().getId()));
+        for (List<Reservation> reservations : byCar.values()) {
+            reservations.sort(Comparator.comparing(Reservation::getPickUpTime));
+            for (int i = 1; i < reservations.size(); i++) {
+                //touching reservations overlap, like in the closed-range database check
+                assertThat(reservations.get(i).getPickUpTime()).isAfter(reservations.get(i - 1).getDropOffTime());
+            }
+        }
+    }
+
+    @Test
+    void updateDoesNotRevertCompletedReservation() throws Exception {
+        LocalDateTime pickUpTime = LocalDateTime.now().plusDays(1).withNano(0);
+        LocalDateTime dropOffTime = pickUpTime.plusHours(5);
+        reservationService.createReservation(new ReservationRequest(pickUpTime, dropOffTime, "Pick up", "Drop off"),
+                user, cars.get(0));
+        Long reservationId = reservationRepository.findAll().get(0).getId();
+        CountDownLatch locked = new CountDownLatch(1);
+
+        //yasam dongusu isi gibi: satiri kilitler, DONE yapar ve guncelleme okumaya calisirken commit eder
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> lifecycle = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jdbcTemplate.update("update t_reservation set status = 'DONE' where id = ?", reservationId);
+                locked.countDown();
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            locked.await();
+            ReservationUpdateRequest request = new ReservationUpdateRequest(pickUpTime, dropOffTime,
+                    "Pick up", "Drop off", ReservationStatus.CREATED);
+
+            assertThatThrownBy(() -> reservationService.updateReservation(reservationId, cars.get(0), request))
+                    .isInstanceOf(BadRequestException.class);
+            lifecycle.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(reservationRepository.findById(reservationId).get().getStatus()).isEqualTo(ReservationStatus.DONE);
+    }
+}